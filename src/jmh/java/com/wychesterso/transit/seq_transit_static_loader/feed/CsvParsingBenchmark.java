@@ -0,0 +1,83 @@
+package com.wychesterso.transit.seq_transit_static_loader.feed;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing stop_times.txt field by field: the byte-level {@link CsvReader} against commons-csv.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CsvParsingBenchmark {
+
+    @Param("1000000")
+    public long rows;
+
+    private Path stopTimes;
+
+    @Setup
+    public void setup() throws IOException {
+        stopTimes = SyntheticFeed.stopTimes(rows);
+    }
+
+    @Benchmark
+    public long csvReader() throws IOException {
+        long sum = 0;
+        try (CsvReader csv = new CsvReader(Files.newInputStream(stopTimes))) {
+            csv.readHeader();
+            while (csv.next()) {
+                sum += csv.length(0) + csv.length(3) + csv.intValue(4);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long commonsCsv() throws IOException {
+        long sum = 0;
+        CSVFormat format = CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build();
+        try (Reader reader = Files.newBufferedReader(stopTimes, StandardCharsets.UTF_8)) {
+            for (CSVRecord r : format.parse(reader)) {
+                sum += r.get(0).length() + r.get(3).length() + Integer.parseInt(r.get(4));
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long readOnly() throws IOException {
+        // lower bound: the cost of reading the file
+        long sum = 0;
+        byte[] buf = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(stopTimes)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                sum += n;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,174 @@
+package com.wychesterso.transit.seq_transit_static_loader.feed;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Deterministic GTFS feed shaped like SEQ (about 12k stops, 600 routes, 25 stops per trip)
+ * with a chosen number of stop_times rows. Its calendar runs from 30 days before today to a
+ * year after, so every service window starting today has trips.
+ * <p>
+ * Feeds are written once per size and day under {@code gtfs.bench.dir}
+ * (default {@code java.io.tmpdir/gtfs-bench}) and reused by later runs.
+ */
+public final class SyntheticFeed {
+
+    public static final int STOPS = 12_000;
+    public static final int ROUTES = 600;
+    public static final int SHAPE_POINTS = 300;
+
+    private static final String[] SERVICES = {"WEEKDAY", "SATURDAY", "SUNDAY", "DAILY"};
+    private static final DateTimeFormatter GTFS_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private SyntheticFeed() {}
+
+    /**
+     * The feed ZIP with {@code stopTimes} stop_times rows.
+     */
+    public static synchronized Path zip(long stopTimes) throws IOException {
+        LocalDate today = LocalDate.now();
+        Path zip = dir().resolve("seq-%d-%s.zip".formatted(stopTimes, today.format(GTFS_DATE)));
+        if (!Files.exists(zip)) {
+            Path tmp = Files.createTempFile(dir(), "seq-", ".zip.tmp");
+            write(tmp, stopTimes, today);
+            Files.move(tmp, zip, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return zip;
+    }
+
+    /**
+     * stop_times.txt of {@link #zip}, extracted.
+     */
+    public static synchronized Path stopTimes(long stopTimes) throws IOException {
+        Path zip = zip(stopTimes);
+        Path file = dir().resolve(zip.getFileName().toString().replace(".zip", "-stop_times.txt"));
+        if (!Files.exists(file)) {
+            try (ZipFile zf = new ZipFile(zip.toFile());
+                 InputStream in = zf.getInputStream(zf.getEntry("stop_times.txt"))) {
+                Path tmp = Files.createTempFile(dir(), "stop_times-", ".tmp");
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        return file;
+    }
+
+    private static Path dir() throws IOException {
+        Path dir = Path.of(System.getProperty("gtfs.bench.dir",
+                Path.of(System.getProperty("java.io.tmpdir"), "gtfs-bench").toString()));
+        return Files.createDirectories(dir);
+    }
+
+    private static void write(Path target, long stopTimes, LocalDate today) throws IOException {
+        Random random = new Random(42);
+
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(target));
+             Writer out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 1 << 16)) {
+
+            entry(zip, out, "agency.txt");
+            out.write("agency_id,agency_name,agency_url,agency_timezone\n");
+            out.write("TL,Translink,https://translink.com.au,Australia/Brisbane\n");
+
+            entry(zip, out, "routes.txt");
+            out.write("route_id,route_short_name,route_long_name,route_desc,route_type,route_url,route_color,route_text_color\n");
+            for (int r = 0; r < ROUTES; r++) {
+                out.write("R%d,%d,\"Route %d, via Centre\",,%d,https://example.com/r/%d,%06X,FFFFFF\n"
+                        .formatted(r, 100 + r, r, r % 20 == 0 ? 2 : 3, r, random.nextInt(0x1000000)));
+            }
+
+            entry(zip, out, "stops.txt");
+            out.write("stop_id,stop_code,stop_name,stop_desc,stop_lat,stop_lon,zone_id,stop_url,location_type,parent_station,platform_code\n");
+            for (int s = 0; s < STOPS; s++) {
+                out.write(String.format(Locale.ROOT, "S%d,%d,\"Stop %d\",,%.6f,%.6f,%d,,0,,\n",
+                        s, 10_000 + s, s,
+                        -28.2 + random.nextDouble() * 1.5,
+                        152.6 + random.nextDouble() * 1.0,
+                        1 + s % 8));
+            }
+
+            LocalDate start = today.minusDays(30);
+            LocalDate end = today.plusDays(365);
+
+            entry(zip, out, "calendar.txt");
+            out.write("service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date\n");
+            String[] days = {"1,1,1,1,1,0,0", "0,0,0,0,0,1,0", "0,0,0,0,0,0,1", "1,1,1,1,1,1,1"};
+            for (int i = 0; i < SERVICES.length; i++) {
+                out.write("%s,%s,%s,%s\n".formatted(
+                        SERVICES[i], days[i], start.format(GTFS_DATE), end.format(GTFS_DATE)));
+            }
+
+            entry(zip, out, "calendar_dates.txt");
+            out.write("service_id,date,exception_type\n");
+            LocalDate holiday = today.plusDays(10);
+            out.write("WEEKDAY,%s,2\n".formatted(holiday.format(GTFS_DATE)));
+            out.write("SUNDAY,%s,1\n".formatted(holiday.format(GTFS_DATE)));
+
+            entry(zip, out, "shapes.txt");
+            out.write("shape_id,shape_pt_lat,shape_pt_lon,shape_pt_sequence\n");
+            for (int r = 0; r < ROUTES * 2; r++) {
+                double lat = -28.2 + random.nextDouble() * 1.5;
+                double lon = 152.6 + random.nextDouble() * 1.0;
+                for (int k = 1; k <= SHAPE_POINTS; k++) {
+                    lat += (random.nextDouble() - 0.5) * 0.002;
+                    lon += random.nextDouble() * 0.001;
+                    out.write(String.format(Locale.ROOT, "SH%d,%.6f,%.6f,%d\n", r, lat, lon, k));
+                }
+            }
+
+            // trips have 10 to 40 stops, 25 on average
+            long trips = 0;
+            long remaining = stopTimes;
+            StringBuilder tripRows = new StringBuilder();
+            entry(zip, out, "stop_times.txt");
+            out.write("trip_id,arrival_time,departure_time,stop_id,stop_sequence,pickup_type,drop_off_type\n");
+            while (remaining > 0) {
+                long t = trips++;
+                int route = (int) (t % ROUTES);
+                int direction = (int) (t / ROUTES % 2);
+                int length = (int) Math.min(remaining, 10 + t % 31);
+                remaining -= length;
+
+                tripRows.append("R%d,%s,T%d,\"Headsign %d\",%d,B%d,SH%d\n".formatted(
+                        route, SERVICES[(int) (t % SERVICES.length)], t, route, direction, t % 5000,
+                        route * 2 + direction));
+
+                // departures from 04:00 to 25:59, so some run past midnight
+                int time = 4 * 3600 + (int) ((t * 7919) % (22 * 3600));
+                int firstStop = (route * 37 + direction * 11) % STOPS;
+                for (int k = 0; k < length; k++) {
+                    String hms = hms(time);
+                    out.write("T" + t + "," + hms + "," + hms + ",S" + ((firstStop + k * 13) % STOPS)
+                            + "," + (k + 1) + ",0,0\n");
+                    time += 60 + (k * 31 + (int) t) % 120;
+                }
+            }
+
+            entry(zip, out, "trips.txt");
+            out.write("route_id,service_id,trip_id,trip_headsign,direction_id,block_id,shape_id\n");
+            out.write(tripRows.toString());
+        }
+    }
+
+    private static void entry(ZipOutputStream zip, Writer out, String name) throws IOException {
+        out.flush();
+        zip.putNextEntry(new ZipEntry(name));
+    }
+
+    private static String hms(int seconds) {
+        return "%02d:%02d:%02d".formatted(seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
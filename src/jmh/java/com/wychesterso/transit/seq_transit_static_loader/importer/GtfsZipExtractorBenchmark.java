@@ -0,0 +1,84 @@
+package com.wychesterso.transit.seq_transit_static_loader.importer;
+
+import com.wychesterso.transit.seq_transit_static_loader.feed.SyntheticFeed;
+import com.wychesterso.transit.seq_transit_static_loader.feed.ZipGtfsFeed;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Getting at the feed's files: extracting the ZIP to disk with {@link GtfsZipExtractor}
+ * against inflating the entries in place through {@link ZipGtfsFeed}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GtfsZipExtractorBenchmark {
+
+    private static final List<String> FILES = List.of(
+            "routes.txt", "stops.txt", "calendar.txt", "calendar_dates.txt",
+            "trips.txt", "shapes.txt", "stop_times.txt");
+
+    @Param("1000000")
+    public long rows;
+
+    private Path zip;
+    private Path extractDir;
+
+    @Setup
+    public void setup() throws IOException {
+        zip = SyntheticFeed.zip(rows);
+        extractDir = Files.createTempDirectory("gtfs-extract-");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(extractDir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public Path extract() throws IOException {
+        return new GtfsZipExtractor(new ImportMetrics(new SimpleMeterRegistry())).extract(zip, extractDir);
+    }
+
+    @Benchmark
+    public long streamEntries() throws IOException {
+        long bytes = 0;
+        try (ZipGtfsFeed feed = new ZipGtfsFeed(zip)) {
+            for (String file : FILES) {
+                try (InputStream in = feed.open(file)) {
+                    bytes += in.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,216 @@
+package com.wychesterso.transit.seq_transit_static_loader.importer;
+
+import com.wychesterso.transit.seq_transit_static_loader.StaticLoaderRunner;
+import com.wychesterso.transit.seq_transit_static_loader.feed.SyntheticFeed;
+import com.wychesterso.transit.seq_transit_static_loader.feed.ZipGtfsFeed;
+import com.wychesterso.transit.seq_transit_static_loader.loader.GtfsLoader;
+import com.wychesterso.transit.seq_transit_static_loader.loader.LoadContext;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end import of a synthetic feed into a throwaway PostgreSQL started from embedded
+ * binaries (no Docker, no network once the binaries are cached): Liquibase builds the schema,
+ * then {@link GtfsImportOrchestrator} loads the feed exactly as a scheduled run would.
+ * <p>
+ * Reports wall time, rows and rows/sec per loader and peak heap, on stdout and as JSON.
+ * Configured with system properties {@code rows} (stop_times rows, default 2,000,000) and
+ * {@code results} (JSON file); import settings come from the usual GTFS_* variables.
+ * PostgreSQL refuses to run as root, so neither can this.
+ */
+public class ImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        // a devtools restart would run main again, starting a second database
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        long rows = Long.parseLong(System.getProperty("rows", "2000000"));
+        Path results = Path.of(System.getProperty("results", "build/results/import-benchmark/results.json"));
+
+        long feedStart = System.currentTimeMillis();
+        Path zip = SyntheticFeed.zip(rows);
+        System.out.printf("Feed with %,d stop_times rows ready in %d ms: %s%n",
+                rows, System.currentTimeMillis() - feedStart, zip);
+
+        try (EmbeddedPostgres pg = EmbeddedPostgres.builder()
+                .setPGStartupWait(Duration.ofSeconds(60))
+                .start()) {
+
+            System.setProperty("spring.datasource.url", pg.getJdbcUrl("postgres", "postgres"));
+            System.setProperty("spring.datasource.username", "postgres");
+            System.setProperty("spring.datasource.password", "");
+
+            Map<String, LoaderTiming> timings = new ConcurrentHashMap<>();
+
+            long contextStart = System.currentTimeMillis();
+            try (ConfigurableApplicationContext ctx = new SpringApplicationBuilder(StaticLoaderRunner.class)
+                    .web(WebApplicationType.NONE)
+                    .initializers(c -> c.getBeanFactory().addBeanPostProcessor(timed(timings)))
+                    .run(args)) {
+
+                long migrateMillis = System.currentTimeMillis() - contextStart;
+
+                List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                        .filter(p -> p.getType() == MemoryType.HEAP)
+                        .toList();
+                System.gc();
+                heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+                long gcBefore = gcMillis();
+
+                long importStart = System.currentTimeMillis();
+                try (ZipGtfsFeed feed = new ZipGtfsFeed(zip)) {
+                    ctx.getBean(GtfsImportOrchestrator.class).importGtfs(feed);
+                }
+                long importMillis = System.currentTimeMillis() - importStart;
+
+                long peakHeap = heapPools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum();
+                long gcMillis = gcMillis() - gcBefore;
+
+                DataSource dataSource = ctx.getBean(DataSource.class);
+                List<Result> loaders = new ArrayList<>();
+                for (LoaderTiming t : timings.values()) {
+                    loaders.add(new Result(t.name(), t.tables(), count(dataSource, t.tables()), t.millis()));
+                }
+                loaders.sort((a, b) -> Long.compare(b.millis(), a.millis()));
+
+                print(rows, migrateMillis, importMillis, peakHeap, gcMillis, loaders);
+                write(results, rows, migrateMillis, importMillis, peakHeap, gcMillis, loaders);
+                System.out.println("Results written to " + results.toAbsolutePath());
+            }
+        }
+    }
+
+    // wraps every loader bean, so the orchestrator runs the timed wrappers
+    private static BeanPostProcessor timed(Map<String, LoaderTiming> timings) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof GtfsLoader loader)) {
+                    return bean;
+                }
+                return new GtfsLoader() {
+                    @Override
+                    public Set<String> produces() {
+                        return loader.produces();
+                    }
+
+                    @Override
+                    public Set<String> dependsOn() {
+                        return loader.dependsOn();
+                    }
+
+                    @Override
+                    public String name() {
+                        return loader.name();
+                    }
+
+                    @Override
+                    public void load(LoadContext ctx) throws Exception {
+                        long start = System.currentTimeMillis();
+                        try {
+                            loader.load(ctx);
+                        } finally {
+                            timings.put(loader.name(), new LoaderTiming(
+                                    loader.name(), loader.produces(), System.currentTimeMillis() - start));
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    private static long count(DataSource dataSource, Set<String> tables) throws Exception {
+        long total = 0;
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+            for (String table : tables) {
+                try (ResultSet rs = st.executeQuery("SELECT count(*) FROM " + TableGenerations.LIVE + "." + table)) {
+                    rs.next();
+                    total += rs.getLong(1);
+                }
+            }
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+
+    private static void print(long rows, long migrateMillis, long importMillis, long peakHeap, long gcMillis,
+                              List<Result> loaders) {
+        System.out.println();
+        System.out.printf("Import of %,d stop_times rows%n", rows);
+        System.out.printf("  context + Liquibase   %,8d ms%n", migrateMillis);
+        System.out.printf("  import                %,8d ms%n", importMillis);
+        System.out.printf("  peak heap             %,8d MB%n", peakHeap / (1024 * 1024));
+        System.out.printf("  GC time               %,8d ms%n", gcMillis);
+        System.out.println();
+        System.out.printf("  %-24s %12s %10s %12s%n", "loader", "rows", "ms", "rows/s");
+        for (Result r : loaders) {
+            System.out.printf("  %-24s %,12d %,10d %,12d%n", r.loader(), r.rows(), r.millis(), r.rowsPerSecond());
+        }
+    }
+
+    private static void write(Path file, long rows, long migrateMillis, long importMillis, long peakHeap,
+                              long gcMillis, List<Result> loaders) throws Exception {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer out = Files.newBufferedWriter(file)) {
+            out.write("""
+                    {
+                      "timestamp": "%s",
+                      "stopTimesRows": %d,
+                      "javaVersion": "%s",
+                      "migrateMillis": %d,
+                      "importMillis": %d,
+                      "peakHeapBytes": %d,
+                      "gcMillis": %d,
+                      "loaders": [
+                    %s
+                      ]
+                    }
+                    """.formatted(
+                    Instant.now(), rows, System.getProperty("java.version"),
+                    migrateMillis, importMillis, peakHeap, gcMillis,
+                    loaders.stream()
+                            .map(r -> "    {\"loader\": \"%s\", \"tables\": [%s], \"rows\": %d, \"millis\": %d, \"rowsPerSecond\": %d}"
+                                    .formatted(r.loader(),
+                                            r.tables().stream().sorted().map(t -> "\"" + t + "\"").collect(Collectors.joining(", ")),
+                                            r.rows(), r.millis(), r.rowsPerSecond()))
+                            .collect(Collectors.joining(",\n"))));
+        }
+    }
+
+    private record LoaderTiming(String name, Set<String> tables, long millis) {}
+
+    private record Result(String loader, Set<String> tables, long rows, long millis) {
+
+        long rowsPerSecond() {
+            return millis == 0 ? 0 : rows * 1000 / millis;
+        }
+    }
+}
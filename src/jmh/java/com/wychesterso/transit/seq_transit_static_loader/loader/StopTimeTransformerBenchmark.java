@@ -0,0 +1,75 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.feed.SyntheticFeed;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating the binary COPY stream for stop_times from stop_times.txt, without a database:
+ * CSV parsing, time parsing, key lookups, per-date expansion and encoding, written to a null stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StopTimeTransformerBenchmark {
+
+    @Param("1000000")
+    public long rows;
+
+    @Param({"1", "4"})
+    public int workers;
+
+    @Param("1")
+    public int windowDays;
+
+    private Path stopTimes;
+    private Map<String, StopTimeTransformer.TripRun> trips;
+    private Map<String, Integer> stopKeys;
+
+    @Setup
+    public void setup() throws Exception {
+        stopTimes = SyntheticFeed.stopTimes(rows);
+
+        // every trip runs on every day of the window; trips have at least 10 stops
+        long[] dates = new long[windowDays];
+        for (int d = 0; d < windowDays; d++) {
+            dates[d] = LocalDate.now().plusDays(d).toEpochDay();
+        }
+        trips = new HashMap<>();
+        for (int t = 0; t <= rows / 10; t++) {
+            trips.put("T" + t, new StopTimeTransformer.TripRun(t, dates));
+        }
+        stopKeys = new HashMap<>();
+        for (int s = 0; s < SyntheticFeed.STOPS; s++) {
+            stopKeys.put("S" + s, s);
+        }
+    }
+
+    @Benchmark
+    public long transform() throws Exception {
+        try (InputStream in = Files.newInputStream(stopTimes)) {
+            return new StopTimeTransformer(trips, stopKeys, workers).transform(in, OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.wychesterso.transit.seq_transit_static_loader.time;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting HH:MM:SS to seconds: {@link GtfsTimeParser} on bytes against splitting Strings,
+ * the Java equivalent of the split_part SQL it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GtfsTimeParserBenchmark {
+
+    @Param("1000000")
+    public int times;
+
+    private byte[] packed;
+    private int[] offsets;
+    private String[] strings;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        offsets = new int[times + 1];
+        strings = new String[times];
+        for (int i = 0; i < times; i++) {
+            int seconds = random.nextInt(28 * 3600);
+            strings[i] = "%02d:%02d:%02d".formatted(seconds / 3600, seconds / 60 % 60, seconds % 60);
+            offsets[i] = sb.length();
+            sb.append(strings[i]);
+        }
+        offsets[times] = sb.length();
+        packed = sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public long byteParser() {
+        long sum = 0;
+        for (int i = 0; i < times; i++) {
+            sum += GtfsTimeParser.parse(packed, offsets[i], offsets[i + 1] - offsets[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long stringSplit() {
+        long sum = 0;
+        for (int i = 0; i < times; i++) {
+            String[] parts = strings[i].split(":");
+            sum += Integer.parseInt(parts[0]) * 3600L + Integer.parseInt(parts[1]) * 60L + Integer.parseInt(parts[2]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,196 @@
+package com.wychesterso.transit.seq_transit_static_loader.feed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Projects a CSV file with a header row onto a fixed list of columns, so it can be fed
+ * to {@code COPY table (columns) ... (FORMAT csv, HEADER true)} whatever columns the file
+ * carries and in whatever order.
+ * <p>
+ * Only the header line is parsed up front. If it already names exactly the wanted columns,
+ * in order, the original bytes are passed through untouched. Otherwise every record is
+ * rewritten on the fly: known columns are reordered, unknown ones dropped, and columns
+ * missing from the file written as NULL.
+ */
+public final class CsvProjection extends InputStream {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvProjection.class);
+
+    // longest header line accepted before giving up on the file
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final CsvReader csv;
+    private final int[] fields;
+
+    private byte[] out = new byte[CHUNK_BYTES];
+    private int outPos;
+    private int outLimit;
+    private boolean done;
+
+    private CsvProjection(CsvReader csv, int[] fields, List<String> columns) {
+        this.csv = csv;
+        this.fields = fields;
+        append(String.join(",", columns).getBytes(StandardCharsets.UTF_8));
+        append((byte) '\n');
+    }
+
+    /**
+     * Wraps {@code in} so it yields a header of {@code columns} followed by each record's
+     * values for those columns. Closing the result closes {@code in}.
+     */
+    public static InputStream project(InputStream in, List<String> columns) throws IOException {
+        byte[] headerLine = readLine(in);
+        List<String> header = new CsvReader(new ByteArrayInputStream(headerLine)).readHeader();
+
+        InputStream whole = new SequenceInputStream(new ByteArrayInputStream(headerLine), in);
+        if (header.equals(columns)) {
+            return whole;
+        }
+
+        int[] fields = new int[columns.size()];
+        for (int c = 0; c < fields.length; c++) {
+            fields[c] = header.indexOf(columns.get(c));
+        }
+        log.info("Projecting CSV columns {} onto {}: ignoring {}, missing {}",
+                header, columns,
+                header.stream().filter(h -> !columns.contains(h)).toList(),
+                columns.stream().filter(c -> !header.contains(c)).toList());
+
+        CsvReader csv = new CsvReader(whole);
+        csv.readHeader();
+        return new CsvProjection(csv, fields, columns);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensure()) {
+            return -1;
+        }
+        return out[outPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensure()) {
+            return -1;
+        }
+        int n = Math.min(len, outLimit - outPos);
+        System.arraycopy(out, outPos, b, off, n);
+        outPos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        csv.close();
+    }
+
+    // refills the output with whole records until a chunk is ready; false at the end
+    private boolean ensure() throws IOException {
+        if (outPos < outLimit) {
+            return true;
+        }
+        outPos = 0;
+        outLimit = 0;
+        while (!done && outLimit < CHUNK_BYTES) {
+            if (!csv.next()) {
+                done = true;
+                break;
+            }
+            writeRecord();
+        }
+        return outLimit > 0;
+    }
+
+    private void writeRecord() {
+        byte[] buf = csv.buffer();
+        for (int c = 0; c < fields.length; c++) {
+            if (c > 0) {
+                append((byte) ',');
+            }
+            int field = fields[c];
+            if (csv.isNull(field)) {
+                continue;
+            }
+            int start = csv.start(field);
+            int end = start + csv.length(field);
+            if (needsQuotes(buf, start, end)) {
+                append((byte) '"');
+                for (int p = start; p < end; p++) {
+                    if (buf[p] == '"') {
+                        append((byte) '"');
+                    }
+                    append(buf[p]);
+                }
+                append((byte) '"');
+            } else {
+                append(buf, start, end - start);
+            }
+        }
+        append((byte) '\n');
+    }
+
+    // an empty string must stay quoted or COPY reads it as NULL; quoting also keeps a lone \. from ending the COPY
+    private static boolean needsQuotes(byte[] buf, int start, int end) {
+        if (start == end) {
+            return true;
+        }
+        for (int p = start; p < end; p++) {
+            byte b = buf[p];
+            if (b == '"' || b == ',' || b == '\n' || b == '\r' || b == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(byte b) {
+        if (outLimit == out.length) {
+            out = Arrays.copyOf(out, out.length * 2);
+        }
+        out[outLimit++] = b;
+    }
+
+    private void append(byte[] b) {
+        append(b, 0, b.length);
+    }
+
+    private void append(byte[] b, int off, int len) {
+        if (outLimit + len > out.length) {
+            out = Arrays.copyOf(out, Math.max(out.length * 2, outLimit + len));
+        }
+        System.arraycopy(b, off, out, outLimit, len);
+        outLimit += len;
+    }
+
+    // the header line including its newline; GTFS headers never contain quoted newlines
+    private static byte[] readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int b;
+        while ((b = in.read()) >= 0) {
+            line.write(b);
+            if (b == '\n') {
+                break;
+            }
+            if (line.size() > MAX_HEADER_BYTES) {
+                throw new IllegalStateException("CSV header line longer than " + MAX_HEADER_BYTES + " bytes");
+            }
+        }
+        return line.toByteArray();
+    }
+}
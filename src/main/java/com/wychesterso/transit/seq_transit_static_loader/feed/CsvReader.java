@@ -0,0 +1,389 @@
+package com.wychesterso.transit.seq_transit_static_loader.feed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV reader working on raw UTF-8 bytes.
+ * <p>
+ * Each call to {@link #next()} exposes one record as byte ranges into an internal buffer,
+ * valid until the following call, so numbers can be parsed and text passed on without
+ * creating a String per field. Quoted fields (including embedded newlines and {@code ""})
+ * are supported; a UTF-8 BOM at the start of the stream is skipped.
+ * <p>
+ * As with {@code COPY ... (FORMAT csv)}, an unquoted empty field is NULL while a quoted
+ * empty field is an empty string. Columns missing at the end of a short record are NULL.
+ */
+public final class CsvReader implements Closeable {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+
+    private byte[] buf = new byte[BUFFER_BYTES];
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    private int count;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] quoted = new boolean[16];
+    private boolean[] escaped = new boolean[16];
+    private long records;
+
+    public CsvReader(InputStream in) throws IOException {
+        this.in = in;
+        fill();
+        while (limit < 3 && !eof) {
+            fill();
+        }
+        if (limit >= 3 && (buf[0] & 0xFF) == 0xEF && (buf[1] & 0xFF) == 0xBB && (buf[2] & 0xFF) == 0xBF) {
+            pos = 3;
+        }
+    }
+
+    /**
+     * Reads the next record as a header, returning its trimmed column names.
+     */
+    public List<String> readHeader() throws IOException {
+        if (!next()) {
+            throw new IllegalStateException("CSV has no header row");
+        }
+        List<String> header = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            header.add(new String(buf, starts[i], ends[i] - starts[i], StandardCharsets.UTF_8).trim());
+        }
+        return header;
+    }
+
+    /**
+     * Advances to the next record, skipping blank lines.
+     *
+     * @return false at the end of the stream
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            while (pos >= limit) {
+                if (eof) {
+                    return false;
+                }
+                fill();
+            }
+
+            int end = scan();
+            if (end < 0) {
+                // record runs past the buffer; scan again once more is read
+                fill();
+                continue;
+            }
+
+            pos = end;
+            if (count == 1 && !quoted[0] && starts[0] == ends[0]) {
+                continue;
+            }
+            unescape();
+            records++;
+            return true;
+        }
+    }
+
+    /**
+     * Number of records returned by {@link #next()} so far, including the header.
+     */
+    public long records() {
+        return records;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int length(int i) {
+        return ends[i] - starts[i];
+    }
+
+    public boolean isNull(int i) {
+        return i < 0 || i >= count || (!quoted[i] && starts[i] == ends[i]);
+    }
+
+    public String string(int i) {
+        return isNull(i) ? null : new String(buf, starts[i], ends[i] - starts[i], StandardCharsets.UTF_8);
+    }
+
+    public int intValue(int i) {
+        int p = trimStart(i);
+        int end = trimEnd(i);
+        boolean negative = p < end && buf[p] == '-';
+        if (negative || (p < end && buf[p] == '+')) {
+            p++;
+        }
+        if (p == end) {
+            throw invalid(i, "integer");
+        }
+
+        long value = 0;
+        for (; p < end; p++) {
+            int digit = buf[p] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(i, "integer");
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw invalid(i, "integer");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw invalid(i, "integer");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a decimal such as {@code -27.4698}. Values with at most 15 significant digits and
+     * no exponent (all coordinates in practice) are converted exactly without allocating;
+     * anything else falls back to {@link Double#parseDouble}.
+     */
+    public double doubleValue(int i) {
+        int p = trimStart(i);
+        int end = trimEnd(i);
+        boolean negative = p < end && buf[p] == '-';
+        if (negative || (p < end && buf[p] == '+')) {
+            p++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        boolean any = false;
+        for (; p < end; p++) {
+            byte b = buf[p];
+            if (b >= '0' && b <= '9') {
+                any = true;
+                if (mantissa == 0 && b == '0') {
+                    if (point) {
+                        scale++;
+                    }
+                    continue;
+                }
+                if (++digits > 15) {
+                    return slowDouble(i);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (point) {
+                    scale++;
+                }
+            } else if (b == '.' && !point) {
+                point = true;
+            } else {
+                return slowDouble(i);
+            }
+        }
+        if (!any || scale >= POWERS_OF_TEN.length) {
+            return slowDouble(i);
+        }
+
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a GTFS date ({@code YYYYMMDD}) into its epoch day.
+     */
+    public long dateValue(int i) {
+        int p = trimStart(i);
+        if (trimEnd(i) - p != 8) {
+            throw invalid(i, "date");
+        }
+        int year = digits(i, p, 4);
+        int month = digits(i, p + 4, 2);
+        int day = digits(i, p + 6, 2);
+        return LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int digits(int field, int p, int n) {
+        int value = 0;
+        for (int end = p + n; p < end; p++) {
+            int digit = buf[p] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid(field, "date");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private double slowDouble(int i) {
+        try {
+            return Double.parseDouble(string(i).trim());
+        } catch (NumberFormatException e) {
+            throw invalid(i, "number");
+        }
+    }
+
+    private int trimStart(int i) {
+        int p = starts[i];
+        while (p < ends[i] && buf[p] == ' ') {
+            p++;
+        }
+        return p;
+    }
+
+    private int trimEnd(int i) {
+        int p = ends[i];
+        while (p > starts[i] && buf[p - 1] == ' ') {
+            p--;
+        }
+        return p;
+    }
+
+    private NumberFormatException invalid(int i, String type) {
+        return new NumberFormatException("Invalid " + type + " '" + string(i) + "' in column " + (i + 1)
+                + " of CSV record " + (records + 1));
+    }
+
+    // finds the fields of the record at pos; returns where the next record starts,
+    // or -1 if the record is not complete in the buffer yet
+    private int scan() {
+        count = 0;
+        int p = pos;
+
+        while (true) {
+            int start;
+            int end;
+            boolean isQuoted = false;
+            boolean isEscaped = false;
+
+            if (p < limit && buf[p] == '"') {
+                isQuoted = true;
+                start = ++p;
+                while (true) {
+                    if (p >= limit) {
+                        if (eof) {
+                            throw new IllegalStateException("Unterminated quoted field in CSV record " + (records + 1));
+                        }
+                        return -1;
+                    }
+                    if (buf[p] == '"') {
+                        if (p + 1 >= limit && !eof) {
+                            return -1;
+                        }
+                        if (p + 1 < limit && buf[p + 1] == '"') {
+                            isEscaped = true;
+                            p += 2;
+                            continue;
+                        }
+                        end = p++;
+                        break;
+                    }
+                    p++;
+                }
+            } else {
+                start = p;
+                while (p < limit && buf[p] != ',' && buf[p] != '\n' && buf[p] != '\r') {
+                    p++;
+                }
+                if (p >= limit && !eof) {
+                    return -1;
+                }
+                end = p;
+            }
+
+            add(start, end, isQuoted, isEscaped);
+
+            if (p >= limit) {
+                // last record, without a trailing newline
+                return p;
+            }
+            byte b = buf[p];
+            if (b == ',') {
+                p++;
+            } else if (b == '\n') {
+                return p + 1;
+            } else if (b == '\r') {
+                p++;
+                if (p >= limit && !eof) {
+                    return -1;
+                }
+                return p < limit && buf[p] == '\n' ? p + 1 : p;
+            } else {
+                throw new IllegalStateException("Unexpected '" + (char) b + "' after quoted field in CSV record "
+                        + (records + 1));
+            }
+        }
+    }
+
+    private void add(int start, int end, boolean isQuoted, boolean isEscaped) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            quoted = Arrays.copyOf(quoted, count * 2);
+            escaped = Arrays.copyOf(escaped, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        quoted[count] = isQuoted;
+        escaped[count] = isEscaped;
+        count++;
+    }
+
+    // collapses "" to " in place; only done once the record is complete, so a rescan never sees it
+    private void unescape() {
+        for (int i = 0; i < count; i++) {
+            if (!escaped[i]) {
+                continue;
+            }
+            int w = starts[i];
+            for (int r = starts[i]; r < ends[i]; r++) {
+                buf[w++] = buf[r];
+                if (buf[r] == '"') {
+                    r++;
+                }
+            }
+            ends[i] = w;
+        }
+    }
+
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+}
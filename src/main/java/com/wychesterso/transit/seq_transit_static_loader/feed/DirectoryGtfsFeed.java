@@ -0,0 +1,33 @@
+package com.wychesterso.transit.seq_transit_static_loader.feed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A feed already extracted to disk.
+ */
+public class DirectoryGtfsFeed implements GtfsFeed {
+
+    private final Path dir;
+
+    public DirectoryGtfsFeed(Path dir) {
+        this.dir = dir;
+    }
+
+    @Override
+    public boolean contains(String fileName) {
+        return Files.exists(dir.resolve(fileName));
+    }
+
+    @Override
+    public InputStream open(String fileName) throws IOException {
+        return Files.newInputStream(dir.resolve(fileName));
+    }
+
+    @Override
+    public String toString() {
+        return dir.toString();
+    }
+}
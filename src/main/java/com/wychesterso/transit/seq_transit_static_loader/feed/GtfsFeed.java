@@ -0,0 +1,17 @@
+package com.wychesterso.transit.seq_transit_static_loader.feed;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Read access to the files of a GTFS feed, e.g. {@code stop_times.txt}.
+ */
+public interface GtfsFeed {
+
+    boolean contains(String fileName);
+
+    /**
+     * Opens the raw bytes of a feed file. The caller closes the stream.
+     */
+    InputStream open(String fileName) throws IOException;
+}
@@ -0,0 +1,47 @@
+package com.wychesterso.transit.seq_transit_static_loader.feed;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads feed files straight out of the downloaded ZIP, inflating each entry on demand
+ * instead of extracting the archive to disk first. Entries can be read concurrently.
+ */
+public class ZipGtfsFeed implements GtfsFeed, Closeable {
+
+    private final Path zipPath;
+    private final ZipFile zip;
+
+    public ZipGtfsFeed(Path zipPath) throws IOException {
+        this.zipPath = zipPath;
+        this.zip = new ZipFile(zipPath.toFile());
+    }
+
+    @Override
+    public boolean contains(String fileName) {
+        return zip.getEntry(fileName) != null;
+    }
+
+    @Override
+    public InputStream open(String fileName) throws IOException {
+        ZipEntry entry = zip.getEntry(fileName);
+        if (entry == null) {
+            throw new IOException(fileName + " not found in " + zipPath);
+        }
+        return zip.getInputStream(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+
+    @Override
+    public String toString() {
+        return zipPath.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.wychesterso.transit.seq_transit_static_loader.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base32 geohashes, computed exactly as the {@code geohash_encode} SQL function that fills
+ * {@code stops.geohash}. Points in the same cell share a prefix, so the stops near a point
+ * are found with a few prefix scans over the cells from {@link #cover}:
+ * <pre>
+ * SELECT stop_id, stop_lat, stop_lon FROM stops
+ * WHERE geohash LIKE ? OR geohash LIKE ? ...  -- one per cell, as cell + '%'
+ * </pre>
+ * followed by an exact distance check, since the cells cover more than the circle.
+ * ({@code LIKE ANY (array)} is not matched to the index; separate {@code LIKE}s are.)
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    // metres per degree of latitude
+    private static final double METRES_PER_DEGREE = Math.toRadians(1) * 6_371_008.8;
+
+    private static final int MAX_PRECISION = 12;
+
+    private Geohash() {}
+
+    public static String encode(double lat, double lon, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be 1-" + MAX_PRECISION + ", was " + precision);
+        }
+        double latLo = -90;
+        double latHi = 90;
+        double lonLo = -180;
+        double lonHi = 180;
+        boolean lonBit = true;
+        int bits = 0;
+        int ch = 0;
+
+        StringBuilder hash = new StringBuilder(precision);
+        while (hash.length() < precision) {
+            if (lonBit) {
+                double mid = (lonLo + lonHi) / 2;
+                if (lon >= mid) {
+                    ch = ch * 2 + 1;
+                    lonLo = mid;
+                } else {
+                    ch = ch * 2;
+                    lonHi = mid;
+                }
+            } else {
+                double mid = (latLo + latHi) / 2;
+                if (lat >= mid) {
+                    ch = ch * 2 + 1;
+                    latLo = mid;
+                } else {
+                    ch = ch * 2;
+                    latHi = mid;
+                }
+            }
+            lonBit = !lonBit;
+            if (++bits == 5) {
+                hash.append(BASE32[ch]);
+                bits = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Cell height in degrees of latitude at {@code precision}.
+     */
+    public static double cellHeight(int precision) {
+        return 180 / Math.pow(2, (5 * precision) / 2);
+    }
+
+    /**
+     * Cell width in degrees of longitude at {@code precision}.
+     */
+    public static double cellWidth(int precision) {
+        return 360 / Math.pow(2, (5 * precision + 1) / 2);
+    }
+
+    /**
+     * Geohash prefixes whose cells together contain every point within {@code radiusM} metres
+     * of the given point: the cell of the point and its neighbours, at the finest precision
+     * whose cells are at least {@code radiusM} wide and high.
+     */
+    public static List<String> cover(double lat, double lon, double radiusM) {
+        double metresPerLonDegree = METRES_PER_DEGREE * Math.max(Math.cos(Math.toRadians(lat)), 1e-6);
+
+        int precision = 1;
+        while (precision < MAX_PRECISION
+                && cellHeight(precision + 1) * METRES_PER_DEGREE >= radiusM
+                && cellWidth(precision + 1) * metresPerLonDegree >= radiusM) {
+            precision++;
+        }
+
+        double height = cellHeight(precision);
+        double width = cellWidth(precision);
+        List<String> cells = new ArrayList<>(9);
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                double cellLat = Math.max(-90, Math.min(90, lat + dy * height));
+                double cellLon = lon + dx * width;
+                // wrap across the antimeridian
+                cellLon = cellLon >= 180 ? cellLon - 360 : cellLon < -180 ? cellLon + 360 : cellLon;
+                String cell = encode(cellLat, cellLon, precision);
+                if (!cells.contains(cell)) {
+                    cells.add(cell);
+                }
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,126 @@
+package com.wychesterso.transit.seq_transit_static_loader.geo;
+
+import java.util.Arrays;
+
+/**
+ * Simplification and encoding of lat/lon polylines, such as GTFS shapes.
+ * <p>
+ * {@link #simplify} is Douglas-Peucker with the tolerance in metres: points are projected
+ * onto a local equirectangular plane, which is accurate to well under a metre over the
+ * extent of a transit shape. {@link #encode} writes the
+ * <a href="https://developers.google.com/maps/documentation/utilities/polylinealgorithm">encoded polyline</a>
+ * format (precision 5) that map clients decode directly.
+ */
+public final class Polylines {
+
+    private static final double EARTH_RADIUS_M = 6_371_008.8;
+
+    private Polylines() {}
+
+    /**
+     * Indices of the first {@code n} points kept by Douglas-Peucker: every dropped point lies
+     * within {@code toleranceM} metres of the simplified line. The first and last points are
+     * always kept; a tolerance of zero or less keeps every point.
+     */
+    public static int[] simplify(double[] lat, double[] lon, int n, double toleranceM) {
+        if (n <= 2 || toleranceM <= 0) {
+            int[] all = new int[n];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+
+        // project to metres around the first point
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double scale = Math.cos(Math.toRadians(lat[0]));
+        for (int i = 0; i < n; i++) {
+            x[i] = Math.toRadians(lon[i] - lon[0]) * scale * EARTH_RADIUS_M;
+            y[i] = Math.toRadians(lat[i] - lat[0]) * EARTH_RADIUS_M;
+        }
+
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int kept = 2;
+        double tolerance2 = toleranceM * toleranceM;
+
+        // ranges still to split, as (first, last) pairs; iterative, so long shapes cannot overflow the stack
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+
+            int farthest = -1;
+            double max = tolerance2;
+            for (int i = first + 1; i < last; i++) {
+                double d = segmentDistance2(x[i], y[i], x[first], y[first], x[last], y[last]);
+                if (d > max) {
+                    max = d;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0) {
+                continue;
+            }
+
+            keep[farthest] = true;
+            kept++;
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[top++] = first;
+            stack[top++] = farthest;
+            stack[top++] = farthest;
+            stack[top++] = last;
+        }
+
+        int[] indices = new int[kept];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (keep[i]) {
+                indices[k++] = i;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Encodes the points at {@code indices} as an encoded polyline.
+     */
+    public static String encode(double[] lat, double[] lon, int[] indices) {
+        StringBuilder out = new StringBuilder(indices.length * 8);
+        long previousLat = 0;
+        long previousLon = 0;
+        for (int i : indices) {
+            long e5Lat = Math.round(lat[i] * 1e5);
+            long e5Lon = Math.round(lon[i] * 1e5);
+            encodeValue(out, e5Lat - previousLat);
+            encodeValue(out, e5Lon - previousLon);
+            previousLat = e5Lat;
+            previousLon = e5Lon;
+        }
+        return out.toString();
+    }
+
+    private static void encodeValue(StringBuilder out, long value) {
+        long v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            out.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        out.append((char) (v + 63));
+    }
+
+    // squared distance from (px, py) to the segment (ax, ay)-(bx, by)
+    private static double segmentDistance2(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double length2 = dx * dx + dy * dy;
+        double t = length2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / length2));
+        double ex = px - (ax + t * dx);
+        double ey = py - (ay + t * dy);
+        return ex * ex + ey * ey;
+    }
+}
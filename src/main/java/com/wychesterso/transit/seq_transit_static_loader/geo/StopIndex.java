@@ -0,0 +1,168 @@
+package com.wychesterso.transit.seq_transit_static_loader.geo;
+
+import com.wychesterso.transit.seq_transit_static_loader.feed.CsvReader;
+import com.wychesterso.transit.seq_transit_static_loader.feed.GtfsFeed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * In-memory spatial index of the stops in stops.txt, for nearby-stop lookups without a
+ * database round trip. Stops are kept in an implicit k-d tree: one array sorted so that the
+ * median of each range splits it, alternately by latitude and longitude.
+ * <p>
+ * Stops without coordinates (generic nodes, boarding areas) are left out.
+ */
+public final class StopIndex {
+
+    private static final double EARTH_RADIUS_M = 6_371_008.8;
+
+    /**
+     * A stop and its great-circle distance from the query point.
+     */
+    public record Nearby(String stopId, double lat, double lon, double distanceM) {}
+
+    private final String[] ids;
+    private final double[] lat;
+    private final double[] lon;
+
+    private StopIndex(List<String> ids, List<double[]> points) {
+        int n = ids.size();
+        Integer[] order = new Integer[n];
+        Arrays.setAll(order, i -> i);
+        build(order, points, 0, n, 0);
+
+        this.ids = new String[n];
+        this.lat = new double[n];
+        this.lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            this.ids[i] = ids.get(order[i]);
+            this.lat[i] = points.get(order[i])[0];
+            this.lon[i] = points.get(order[i])[1];
+        }
+    }
+
+    public static StopIndex read(GtfsFeed feed) throws IOException {
+        if (!feed.contains("stops.txt")) {
+            throw new IllegalStateException("stops.txt not found in " + feed);
+        }
+        try (InputStream in = feed.open("stops.txt")) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Builds the index from {@code in}, a stops.txt with its header.
+     */
+    public static StopIndex read(InputStream in) throws IOException {
+        List<String> ids = new ArrayList<>();
+        List<double[]> points = new ArrayList<>();
+        try (CsvReader csv = new CsvReader(in)) {
+            List<String> header = csv.readHeader();
+            int id = header.indexOf("stop_id");
+            int lat = header.indexOf("stop_lat");
+            int lon = header.indexOf("stop_lon");
+            if (id < 0 || lat < 0 || lon < 0) {
+                throw new IllegalStateException("stops.txt lacks stop_id, stop_lat or stop_lon: " + header);
+            }
+            while (csv.next()) {
+                if (csv.isNull(lat) || csv.isNull(lon)) {
+                    continue;
+                }
+                ids.add(csv.string(id));
+                points.add(new double[]{csv.doubleValue(lat), csv.doubleValue(lon)});
+            }
+        }
+        return new StopIndex(ids, points);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Stops within {@code radiusM} metres of the point, nearest first.
+     */
+    public List<Nearby> within(double lat, double lon, double radiusM) {
+        double dLat = Math.toDegrees(radiusM / EARTH_RADIUS_M);
+        double cos = Math.cos(Math.toRadians(lat));
+        double dLon = cos < 1e-9 ? 360 : Math.toDegrees(radiusM / (EARTH_RADIUS_M * cos));
+
+        List<Nearby> found = new ArrayList<>();
+        search(0, ids.length, 0, lat - dLat, lat + dLat, lon - dLon, lon + dLon, lat, lon, radiusM, found);
+        found.sort(Comparator.comparingDouble(Nearby::distanceM));
+        return found;
+    }
+
+    /**
+     * The {@code k} stops nearest the point, nearest first.
+     */
+    public List<Nearby> nearest(double lat, double lon, int k) {
+        if (k <= 0 || ids.length == 0) {
+            return List.of();
+        }
+        // widen the search until it holds k stops; nothing outside it can be nearer than those
+        double radius = 250;
+        List<Nearby> found = within(lat, lon, radius);
+        while (found.size() < Math.min(k, ids.length) && radius < Math.PI * EARTH_RADIUS_M) {
+            radius *= 2;
+            found = within(lat, lon, radius);
+        }
+        return found.subList(0, Math.min(k, found.size()));
+    }
+
+    /**
+     * Great-circle (haversine) distance in metres.
+     */
+    public static double distanceM(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // orders [from, to) so its median splits it on the axis of this depth, then recurses into both halves
+    private static void build(Integer[] order, List<double[]> points, int from, int to, int depth) {
+        if (to - from <= 1) {
+            return;
+        }
+        int axis = depth % 2;
+        Arrays.sort(order, from, to, Comparator.comparingDouble(i -> points.get(i)[axis]));
+        int mid = (from + to) >>> 1;
+        build(order, points, from, mid, depth + 1);
+        build(order, points, mid + 1, to, depth + 1);
+    }
+
+    private void search(int from, int to, int depth,
+                        double minLat, double maxLat, double minLon, double maxLon,
+                        double qLat, double qLon, double radiusM, List<Nearby> found) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        double pLat = lat[mid];
+        double pLon = lon[mid];
+        if (pLat >= minLat && pLat <= maxLat && pLon >= minLon && pLon <= maxLon) {
+            double d = distanceM(qLat, qLon, pLat, pLon);
+            if (d <= radiusM) {
+                found.add(new Nearby(ids[mid], pLat, pLon, d));
+            }
+        }
+
+        double split = depth % 2 == 0 ? pLat : pLon;
+        double min = depth % 2 == 0 ? minLat : minLon;
+        double max = depth % 2 == 0 ? maxLat : maxLon;
+        if (min <= split) {
+            search(from, mid, depth + 1, minLat, maxLat, minLon, maxLon, qLat, qLon, radiusM, found);
+        }
+        if (max >= split) {
+            search(mid + 1, to, depth + 1, minLat, maxLat, minLon, maxLon, qLat, qLon, radiusM, found);
+        }
+    }
+}
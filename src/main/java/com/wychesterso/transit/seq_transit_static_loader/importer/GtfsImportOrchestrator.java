@@ -1,58 +1,97 @@
 package com.wychesterso.transit.seq_transit_static_loader.importer;
 
-import com.wychesterso.transit.seq_transit_static_loader.loader.CalendarLoader;
-import com.wychesterso.transit.seq_transit_static_loader.loader.CalendarDateLoader;
-import com.wychesterso.transit.seq_transit_static_loader.loader.RouteLoader;
-import com.wychesterso.transit.seq_transit_static_loader.loader.ShapeLoader;
-import com.wychesterso.transit.seq_transit_static_loader.loader.StopTimeLoader;
-import com.wychesterso.transit.seq_transit_static_loader.loader.StopLoader;
-import com.wychesterso.transit.seq_transit_static_loader.loader.TripLoader;
+import com.wychesterso.transit.seq_transit_static_loader.feed.GtfsFeed;
+import com.wychesterso.transit.seq_transit_static_loader.loader.GtfsLoader;
+import com.wychesterso.transit.seq_transit_static_loader.loader.IndexBuilder;
+import com.wychesterso.transit.seq_transit_static_loader.loader.LoadContext;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.timetable.TimetableExporter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Component
 public class GtfsImportOrchestrator {
 
-    private final RouteLoader routeLoader;
-    private final StopLoader stopLoader;
-    private final CalendarLoader calendarLoader;
-    private final CalendarDateLoader calendarDateLoader;
-    private final TripLoader tripLoader;
-    private final ShapeLoader shapeLoader;
-    private final StopTimeLoader stopTimeLoader;
+    private final LoaderScheduler scheduler;
+    private final TableGenerations generations;
+    private final ImportMetrics metrics;
+    private final IndexBuilder indexes;
+    private final TimetableExporter timetable;
+    private final Set<String> tables = new LinkedHashSet<>();
+
+    // each running loader holds its own pooled connection
+    @Value("${gtfs.import.parallelism}")
+    private int parallelism;
+
+    @Value("${gtfs.import.mode}")
+    private ImportMode mode;
+
+    @Value("${gtfs.import.binary-copy}")
+    private boolean binaryCopy;
+
+    // load the swap generation into UNLOGGED tables, logged just before the swap
+    @Value("${gtfs.import.unlogged}")
+    private boolean unlogged;
 
     public GtfsImportOrchestrator(
-            RouteLoader routeLoader,
-            StopLoader stopLoader,
-            CalendarLoader calendarLoader,
-            CalendarDateLoader calendarDateLoader,
-            TripLoader tripLoader,
-            ShapeLoader shapeLoader,
-            StopTimeLoader stopTimeLoader) {
-        this.routeLoader = routeLoader;
-        this.stopLoader = stopLoader;
-        this.calendarLoader = calendarLoader;
-        this.calendarDateLoader = calendarDateLoader;
-        this.tripLoader = tripLoader;
-        this.shapeLoader = shapeLoader;
-        this.stopTimeLoader = stopTimeLoader;
+            List<GtfsLoader> loaders,
+            TableGenerations generations,
+            ImportMetrics metrics,
+            IndexBuilder indexes,
+            TimetableExporter timetable) {
+        this.scheduler = new LoaderScheduler(loaders);
+        this.generations = generations;
+        this.metrics = metrics;
+        this.indexes = indexes;
+        this.timetable = timetable;
+        for (GtfsLoader loader : scheduler.order()) {
+            tables.addAll(loader.produces());
+        }
     }
 
-    @Transactional
-    public void importGtfs(Path gtfsDir) throws Exception {
+    public void importGtfs(GtfsFeed feed) throws Exception {
         try {
-            routeLoader.load(gtfsDir);
-            stopLoader.load(gtfsDir);
-            calendarLoader.load(gtfsDir);
-            calendarDateLoader.load(gtfsDir);
-            tripLoader.load(gtfsDir);
-            shapeLoader.load(gtfsDir);
-            stopTimeLoader.load(gtfsDir);
+            indexes.validate();
+
+            // an unlogged table reads as empty on replicas and after a crash, so never live
+            if (unlogged && mode != ImportMode.SWAP) {
+                throw new IllegalStateException("gtfs.import.unlogged requires gtfs.import.mode=swap, was " + mode);
+            }
+
+            switch (mode) {
+                case SWAP -> {
+                    generations.prepare(tables, unlogged);
+                    runLoaders(new LoadContext(feed, TableGenerations.NEXT, false, binaryCopy));
+                    if (unlogged) {
+                        generations.setLogged(tables);
+                    }
+                    generations.swap(tables);
+                }
+                case DIFF -> runLoaders(new LoadContext(feed, TableGenerations.LIVE, true, binaryCopy));
+                default -> runLoaders(new LoadContext(feed, TableGenerations.LIVE, false, binaryCopy));
+            }
+
+            timetable.export(TableGenerations.LIVE);
         } catch (Exception e) {
             e.printStackTrace();
             throw e;
         }
     }
-}
\ No newline at end of file
+
+    public void rollback() throws Exception {
+        generations.rollback(tables);
+        timetable.export(TableGenerations.LIVE);
+    }
+
+    private void runLoaders(LoadContext ctx) throws Exception {
+        scheduler.run(loader -> {
+            long start = System.currentTimeMillis();
+            loader.load(ctx);
+            metrics.loader(loader.name(), System.currentTimeMillis() - start);
+        }, parallelism);
+    }
+}
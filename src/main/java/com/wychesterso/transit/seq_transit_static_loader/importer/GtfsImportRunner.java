@@ -1,16 +1,28 @@
 package com.wychesterso.transit.seq_transit_static_loader.importer;
 
+import com.wychesterso.transit.seq_transit_static_loader.feed.DirectoryGtfsFeed;
+import com.wychesterso.transit.seq_transit_static_loader.feed.ZipGtfsFeed;
+import com.wychesterso.transit.seq_transit_static_loader.importer.GtfsZipDownloader.GtfsDownload;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
+import com.wychesterso.transit.seq_transit_static_loader.time.ServiceTimeHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 @Component
 public class GtfsImportRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(GtfsImportRunner.class);
+
     private final GtfsZipDownloader downloader;
     private final GtfsZipExtractor extractor;
     private final GtfsImportOrchestrator orchestrator;
+    private final ImportMetrics metrics;
 
     @Value("${gtfs.static.url}")
     private String gtfsUrl;
@@ -18,19 +30,65 @@ public class GtfsImportRunner {
     @Value("${gtfs.workdir}")
     private String workDir;
 
+    @Value("${gtfs.import.rollback}")
+    private boolean rollback;
+
+    @Value("${gtfs.import.extract}")
+    private boolean extract;
+
+    @Value("${gtfs.import.force}")
+    private boolean force;
+
     public GtfsImportRunner(
             GtfsZipDownloader downloader,
             GtfsZipExtractor extractor,
-            GtfsImportOrchestrator orchestrator) {
+            GtfsImportOrchestrator orchestrator,
+            ImportMetrics metrics) {
         this.downloader = downloader;
         this.extractor = extractor;
         this.orchestrator = orchestrator;
+        this.metrics = metrics;
     }
 
     public void runImport() throws Exception {
+        if (rollback) {
+            orchestrator.rollback();
+            return;
+        }
+
+        try {
+            importFeed();
+        } finally {
+            // a failed import still exports how far it got
+            metrics.export();
+        }
+    }
+
+    private void importFeed() throws Exception {
         Path base = Path.of(workDir);
-        Path zip = downloader.download(gtfsUrl, base);
-        Path extracted = extractor.extract(zip, base.resolve("extracted"));
-        orchestrator.importGtfs(extracted);
+        ImportMetrics.Timing downloadTiming = metrics.start(ImportMetrics.FEED, Phase.DOWNLOAD);
+        GtfsDownload download = downloader.download(gtfsUrl, base);
+        downloadTiming.stop(-1, download.received());
+        Path zip = download.zip();
+
+        // stop_times is filtered by service date, so an unchanged feed still reloads once per day
+        Path lastImport = base.resolve("last-import");
+        String importKey = download.sha256() + " " + ServiceTimeHelper.now().serviceDate();
+        if (!force && Files.exists(lastImport) && Files.readString(lastImport).equals(importKey)) {
+            log.info("Feed unchanged since last import for this service date, skipping");
+            return;
+        }
+
+        if (extract) {
+            Path extracted = extractor.extract(zip, base.resolve("extracted"));
+            orchestrator.importGtfs(new DirectoryGtfsFeed(extracted));
+        } else {
+            // loaders stream each entry out of the ZIP
+            try (ZipGtfsFeed feed = new ZipGtfsFeed(zip)) {
+                orchestrator.importGtfs(feed);
+            }
+        }
+
+        Files.writeString(lastImport, importKey);
     }
-}
\ No newline at end of file
+}
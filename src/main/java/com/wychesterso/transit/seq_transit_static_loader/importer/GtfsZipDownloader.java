@@ -5,40 +5,209 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
 
+/**
+ * Downloads the GTFS ZIP into {@code gtfs.zip}, keeping the server's ETag / Last-Modified
+ * and the content hash in {@code gtfs.zip.meta}. Later runs send them back as
+ * If-None-Match / If-Modified-Since, so an unchanged feed costs a single 304.
+ * <p>
+ * The body is streamed into {@code gtfs.zip.part}, which is only moved into place once
+ * complete. If a run dies mid-transfer, the next run resumes the part file with a
+ * Range request guarded by If-Range.
+ */
 @Component
 public class GtfsZipDownloader {
 
     private static final Logger log = LoggerFactory.getLogger(GtfsZipDownloader.class);
 
-    public Path download(String url, Path targetDir) throws IOException, InterruptedException {
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+    private static final String SHA256 = "sha256";
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    public GtfsDownload download(String url, Path targetDir) throws IOException, InterruptedException {
         log.info("Downloading GTFS ZIP from {}", url);
         long start = System.currentTimeMillis();
 
         Files.createDirectories(targetDir);
 
         Path zipPath = targetDir.resolve("gtfs.zip");
+        Path zipMeta = targetDir.resolve("gtfs.zip.meta");
+        Path partPath = targetDir.resolve("gtfs.zip.part");
+        Path partMeta = targetDir.resolve("gtfs.zip.part.meta");
+
+        Properties current = Files.exists(zipPath) ? readMeta(zipMeta) : new Properties();
+        Properties partial = Files.exists(partPath) ? readMeta(partMeta) : new Properties();
 
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).build();
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url));
+        long resumeFrom = 0;
 
-        client.send(
-                request,
-                HttpResponse.BodyHandlers.ofFile(zipPath)
+        String partValidator = validator(partial);
+        if (partValidator != null && Files.size(partPath) > 0) {
+            resumeFrom = Files.size(partPath);
+            log.info("Resuming interrupted download at byte {}", resumeFrom);
+            request.header("Range", "bytes=" + resumeFrom + "-")
+                    .header("If-Range", partValidator);
+        } else {
+            if (current.getProperty(ETAG) != null) {
+                request.header("If-None-Match", current.getProperty(ETAG));
+            }
+            if (current.getProperty(LAST_MODIFIED) != null) {
+                request.header("If-Modified-Since", current.getProperty(LAST_MODIFIED));
+            }
+        }
+
+        HttpResponse<InputStream> response = client.send(
+                request.build(),
+                HttpResponse.BodyHandlers.ofInputStream()
         );
 
+        int status = response.statusCode();
+
+        if (status == 304) {
+            response.body().close();
+            log.info("GTFS ZIP not modified ({} ms)", System.currentTimeMillis() - start);
+            return new GtfsDownload(zipPath, current.getProperty(SHA256), false, 0);
+        }
+
+        if (status == 416 && resumeFrom > 0) {
+            // part file is stale or already complete; start over
+            response.body().close();
+            Files.deleteIfExists(partPath);
+            Files.deleteIfExists(partMeta);
+            return download(url, targetDir);
+        }
+
+        boolean resumed = status == 206;
+        if (resumed && contentRangeStart(response) != resumeFrom) {
+            response.body().close();
+            throw new IOException("Server resumed at unexpected offset: "
+                    + response.headers().firstValue("Content-Range").orElse("?"));
+        }
+        if (status != 200 && !resumed) {
+            response.body().close();
+            throw new IOException("Unexpected HTTP " + status + " downloading " + url);
+        }
+
+        // remember the validators first, so an interrupted body can be resumed
+        Properties received = new Properties();
+        if (resumed) {
+            received.putAll(partial);
+        }
+        response.headers().firstValue("ETag").ifPresent(v -> received.setProperty(ETAG, v));
+        response.headers().firstValue("Last-Modified").ifPresent(v -> received.setProperty(LAST_MODIFIED, v));
+        if (!resumed) {
+            writeMeta(partMeta, received);
+        }
+
+        try (InputStream in = response.body();
+             OutputStream out = resumed
+                     ? Files.newOutputStream(partPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                     : Files.newOutputStream(partPath)) {
+            in.transferTo(out);
+        }
+
+        String sha256 = sha256(partPath);
+        received.setProperty(SHA256, sha256);
+
+        Files.move(partPath, zipPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writeMeta(zipMeta, received);
+        Files.deleteIfExists(partMeta);
+
+        boolean changed = !sha256.equals(current.getProperty(SHA256));
         long size = Files.size(zipPath);
 
-        log.info("Downloaded GTFS ZIP ({} MB) in {} ms",
+        log.info("Downloaded GTFS ZIP ({} MB{}) in {} ms",
                 size / (1024 * 1024),
+                changed ? "" : ", content unchanged",
                 System.currentTimeMillis() - start);
 
-        return zipPath;
+        return new GtfsDownload(zipPath, sha256, changed, size - resumeFrom);
     }
-}
\ No newline at end of file
+
+    // If-Range only accepts a strong ETag or a date
+    private static String validator(Properties meta) {
+        String etag = meta.getProperty(ETAG);
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return meta.getProperty(LAST_MODIFIED);
+    }
+
+    private static long contentRangeStart(HttpResponse<?> response) {
+        // Content-Range: bytes <start>-<end>/<total>
+        String range = response.headers().firstValue("Content-Range").orElse("");
+        int space = range.indexOf(' ');
+        int dash = range.indexOf('-');
+        if (space < 0 || dash < space) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(range.substring(space + 1, dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static Properties readMeta(Path file) throws IOException {
+        Properties meta = new Properties();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                meta.load(reader);
+            }
+        }
+        return meta;
+    }
+
+    private static void writeMeta(Path file, Properties meta) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            meta.store(writer, "GTFS download metadata");
+        }
+    }
+
+    /**
+     * @param zip     the local copy of the feed
+     * @param sha256  hex SHA-256 of the local copy
+     * @param changed whether the content differs from the previous download
+     * @param received bytes transferred by this download
+     */
+    public record GtfsDownload(
+            Path zip,
+            String sha256,
+            boolean changed,
+            long received
+    ) {}
+}
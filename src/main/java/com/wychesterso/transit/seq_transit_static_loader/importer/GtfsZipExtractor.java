@@ -1,5 +1,7 @@
 package com.wychesterso.transit.seq_transit_static_loader.importer;
 
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -16,11 +18,18 @@ public class GtfsZipExtractor {
 
     private static final Logger log = LoggerFactory.getLogger(GtfsZipDownloader.class);
 
+    private final ImportMetrics metrics;
+
+    public GtfsZipExtractor(ImportMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public Path extract(Path zipPath, Path extractDir) throws IOException {
 
         log.info("Extracting GTFS ZIP: {}", zipPath);
         int fileCount = 0;
-        long start = System.currentTimeMillis();
+        long bytes = 0;
+        ImportMetrics.Timing timing = metrics.start(ImportMetrics.FEED, Phase.EXTRACT);
 
         Files.createDirectories(extractDir);
 
@@ -32,7 +41,7 @@ public class GtfsZipExtractor {
                 if (entry.isDirectory()) {
                     Files.createDirectories(out);
                 } else {
-                    Files.copy(zis, out, StandardCopyOption.REPLACE_EXISTING);
+                    bytes += Files.copy(zis, out, StandardCopyOption.REPLACE_EXISTING);
                 }
                 fileCount++;
             }
@@ -40,7 +49,7 @@ public class GtfsZipExtractor {
 
         log.info("Extracted {} GTFS files in {} ms",
                 fileCount,
-                System.currentTimeMillis() - start);
+                timing.stop(-1, bytes));
 
         return extractDir;
     }
@@ -0,0 +1,16 @@
+package com.wychesterso.transit.seq_transit_static_loader.importer;
+
+public enum ImportMode {
+    /**
+     * Truncate and reload the live tables in place.
+     */
+    DIRECT,
+    /**
+     * Load a shadow generation and swap it in atomically once complete.
+     */
+    SWAP,
+    /**
+     * Stage the feed and apply only the inserted, updated and deleted rows to the live tables.
+     */
+    DIFF
+}
@@ -0,0 +1,171 @@
+package com.wychesterso.transit.seq_transit_static_loader.importer;
+
+import com.wychesterso.transit.seq_transit_static_loader.loader.GtfsLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a set of {@link GtfsLoader}s as a dependency graph: a loader starts as soon as
+ * every loader producing one of its {@link GtfsLoader#dependsOn()} tables has finished,
+ * with at most {@code parallelism} loaders running at once.
+ */
+public class LoaderScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(LoaderScheduler.class);
+
+    private final List<GtfsLoader> order;
+    private final Map<GtfsLoader, List<GtfsLoader>> upstream;
+
+    public LoaderScheduler(List<? extends GtfsLoader> loaders) {
+        Map<String, GtfsLoader> producers = new HashMap<>();
+        for (GtfsLoader loader : loaders) {
+            for (String table : loader.produces()) {
+                GtfsLoader previous = producers.put(table, loader);
+                if (previous != null) {
+                    throw new IllegalStateException("Table " + table + " is produced by both "
+                            + previous.name() + " and " + loader.name());
+                }
+            }
+        }
+
+        this.upstream = new LinkedHashMap<>();
+        for (GtfsLoader loader : loaders) {
+            List<GtfsLoader> deps = new ArrayList<>();
+            for (String table : loader.dependsOn()) {
+                GtfsLoader producer = producers.get(table);
+                if (producer == null) {
+                    throw new IllegalStateException(loader.name() + " depends on " + table
+                            + " but no loader produces it");
+                }
+                if (producer != loader && !deps.contains(producer)) {
+                    deps.add(producer);
+                }
+            }
+            upstream.put(loader, deps);
+        }
+
+        this.order = topologicalOrder();
+    }
+
+    /**
+     * Loaders in an order where every loader comes after its dependencies.
+     */
+    public List<GtfsLoader> order() {
+        return order;
+    }
+
+    public void run(LoaderTask task, int parallelism) throws Exception {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be >= 1, was " + parallelism);
+        }
+
+        long start = System.currentTimeMillis();
+        log.info("Running {} loaders with parallelism {}", order.size(), parallelism);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "gtfs-loader-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Map<GtfsLoader, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+
+        try {
+            for (GtfsLoader loader : order) {
+                CompletableFuture<?>[] deps = upstream.get(loader).stream()
+                        .map(futures::get)
+                        .toArray(CompletableFuture[]::new);
+
+                futures.put(loader, CompletableFuture.allOf(deps).thenRunAsync(() -> {
+                    if (failure.get() != null) {
+                        throw new CancellationException("Skipping " + loader.name() + " after earlier failure");
+                    }
+                    try {
+                        task.run(loader);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                        throw new CompletionException(e);
+                    }
+                }, executor));
+            }
+
+            try {
+                CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+            } catch (CompletionException | CancellationException ignored) {
+                // the root cause is captured in failure
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Throwable e = failure.get();
+        if (e instanceof Exception ex) {
+            throw ex;
+        }
+        if (e instanceof Error err) {
+            throw err;
+        }
+
+        log.info("All loaders finished in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private List<GtfsLoader> topologicalOrder() {
+        Map<GtfsLoader, Integer> pending = new HashMap<>();
+        Map<GtfsLoader, List<GtfsLoader>> downstream = new HashMap<>();
+        for (Map.Entry<GtfsLoader, List<GtfsLoader>> e : upstream.entrySet()) {
+            pending.put(e.getKey(), e.getValue().size());
+            for (GtfsLoader dep : e.getValue()) {
+                downstream.computeIfAbsent(dep, k -> new ArrayList<>()).add(e.getKey());
+            }
+        }
+
+        Deque<GtfsLoader> ready = new ArrayDeque<>();
+        for (GtfsLoader loader : upstream.keySet()) {
+            if (pending.get(loader) == 0) {
+                ready.add(loader);
+            }
+        }
+
+        List<GtfsLoader> sorted = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            GtfsLoader loader = ready.poll();
+            sorted.add(loader);
+            for (GtfsLoader next : downstream.getOrDefault(loader, List.of())) {
+                if (pending.merge(next, -1, Integer::sum) == 0) {
+                    ready.add(next);
+                }
+            }
+        }
+
+        if (sorted.size() != upstream.size()) {
+            List<String> stuck = upstream.keySet().stream()
+                    .filter(l -> !sorted.contains(l))
+                    .map(GtfsLoader::name)
+                    .toList();
+            throw new IllegalStateException("Loader dependency cycle between " + stuck);
+        }
+        return List.copyOf(sorted);
+    }
+
+    @FunctionalInterface
+    public interface LoaderTask {
+        void run(GtfsLoader loader) throws Exception;
+    }
+}
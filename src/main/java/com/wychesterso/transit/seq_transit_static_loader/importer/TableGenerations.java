@@ -0,0 +1,274 @@
+package com.wychesterso.transit.seq_transit_static_loader.importer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Blue/green generations of the GTFS tables, kept in separate schemas:
+ * <ul>
+ *     <li>{@code public} - the live tables readers query</li>
+ *     <li>{@code gtfs_next} - the generation being loaded</li>
+ *     <li>{@code gtfs_prev} - the previous live generation, kept for rollback</li>
+ * </ul>
+ * Swapping moves whole tables (with their indexes) between schemas in one transaction,
+ * so readers see either the old feed or the new one, never a partial load.
+ * <p>
+ * Table privileges are not copied to the shadow tables; readers on another role
+ * need {@code ALTER DEFAULT PRIVILEGES} for the loader role.
+ * <p>
+ * The shadow tables can be created UNLOGGED, so COPY and index builds write no WAL, and
+ * made durable with {@link #setLogged} once loaded, which writes each table to WAL once.
+ * <p>
+ * Partitioned tables keep their partitioning in the shadow generation and move together
+ * with their partitions. They are always logged: PostgreSQL has no unlogged partitioned
+ * tables, and their partitions are built by the loaders.
+ */
+@Component
+public class TableGenerations {
+
+    public static final String LIVE = "public";
+    public static final String NEXT = "gtfs_next";
+    public static final String PREVIOUS = "gtfs_prev";
+
+    private static final Logger log = LoggerFactory.getLogger(TableGenerations.class);
+
+    private final DataSource dataSource;
+
+    public TableGenerations(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Recreates the shadow schema with empty copies of the live tables.
+     * Only primary keys are kept; loaders build their secondary indexes after COPY.
+     *
+     * @param unlogged create the copies UNLOGGED; {@link #setLogged} must run before {@link #swap}
+     */
+    public void prepare(Collection<String> tables, boolean unlogged) throws SQLException {
+        log.info("Preparing {}shadow generation in {}...", unlogged ? "unlogged " : "", NEXT);
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("DROP SCHEMA IF EXISTS " + NEXT + " CASCADE");
+                st.execute("CREATE SCHEMA " + NEXT);
+
+                for (String table : tables) {
+                    String partitionKey = partitionKey(conn, LIVE, table);
+                    if (partitionKey != null) {
+                        st.execute("CREATE TABLE %s.%s (LIKE %s.%s INCLUDING ALL) PARTITION BY %s"
+                                .formatted(NEXT, table, LIVE, table, partitionKey));
+                    } else {
+                        st.execute("CREATE %sTABLE %s.%s (LIKE %s.%s INCLUDING ALL)"
+                                .formatted(unlogged ? "UNLOGGED " : "", NEXT, table, LIVE, table));
+                    }
+
+                    for (String index : secondaryIndexes(conn, NEXT, table)) {
+                        st.execute("DROP INDEX " + NEXT + "." + index);
+                    }
+                }
+            }
+
+            conn.commit();
+        }
+    }
+
+    /**
+     * Makes the loaded shadow tables crash-safe and visible to replicas. Each table and its
+     * indexes are rewritten into WAL in one pass, instead of logging every COPY batch and
+     * index page as it was written.
+     */
+    public void setLogged(Collection<String> tables) throws SQLException {
+        log.info("Setting {} tables logged...", NEXT);
+        long start = System.currentTimeMillis();
+
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            for (String table : tables) {
+                if (partitionKey(conn, NEXT, table) != null) {
+                    continue;
+                }
+                long tableStart = System.currentTimeMillis();
+                st.execute("ALTER TABLE %s.%s SET LOGGED".formatted(NEXT, table));
+                log.info("{}.{} logged in {} ms", NEXT, table, System.currentTimeMillis() - tableStart);
+            }
+        }
+
+        log.info("Shadow tables logged in {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Promotes the shadow generation to live and demotes the live one to {@link #PREVIOUS}.
+     */
+    public void swap(Collection<String> tables) throws SQLException {
+        analyze(tables);
+
+        log.info("Swapping {} into {}...", NEXT, LIVE);
+        long start = System.currentTimeMillis();
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                // fail rather than queue readers behind us for long
+                st.execute("SET LOCAL lock_timeout = '30s'");
+                st.execute("DROP SCHEMA IF EXISTS " + PREVIOUS + " CASCADE");
+                st.execute("CREATE SCHEMA " + PREVIOUS);
+
+                for (String table : tables) {
+                    moveTable(conn, LIVE, table, PREVIOUS);
+                    moveTable(conn, NEXT, table, LIVE);
+                }
+
+                st.execute("DROP SCHEMA " + NEXT);
+            }
+
+            conn.commit();
+        }
+
+        log.info("Swap committed in {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Puts the previous generation back live. The replaced generation becomes the new
+     * {@link #PREVIOUS}, so rolling back twice restores the original state.
+     */
+    public void rollback(Collection<String> tables) throws SQLException {
+        log.info("Rolling back to generation in {}...", PREVIOUS);
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET LOCAL lock_timeout = '30s'");
+
+                for (String table : tables) {
+                    if (!tableExists(conn, PREVIOUS, table)) {
+                        throw new IllegalStateException("No previous generation of " + table + " to roll back to");
+                    }
+                }
+
+                st.execute("DROP SCHEMA IF EXISTS " + NEXT + " CASCADE");
+                st.execute("CREATE SCHEMA " + NEXT);
+
+                for (String table : tables) {
+                    moveTable(conn, LIVE, table, NEXT);
+                    moveTable(conn, PREVIOUS, table, LIVE);
+                    moveTable(conn, NEXT, table, PREVIOUS);
+                }
+
+                st.execute("DROP SCHEMA " + NEXT);
+            }
+
+            conn.commit();
+        }
+
+        log.info("Rollback committed");
+    }
+
+    // fresh planner statistics before readers start hitting the new tables
+    private void analyze(Collection<String> tables) throws SQLException {
+        log.info("Analyzing {}...", NEXT);
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            for (String table : tables) {
+                st.execute("ANALYZE " + NEXT + "." + table);
+            }
+        }
+    }
+
+    // a partitioned table moves without its partitions, so they are moved first
+    private static void moveTable(Connection conn, String fromSchema, String table, String toSchema)
+            throws SQLException {
+        List<String> partitions = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = (quote_ident(?) || '.' || quote_ident(?))::regclass
+                """)) {
+            ps.setString(1, fromSchema);
+            ps.setString(2, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(rs.getString(1));
+                }
+            }
+        }
+
+        try (Statement st = conn.createStatement()) {
+            for (String partition : partitions) {
+                st.execute("ALTER TABLE %s.%s SET SCHEMA %s".formatted(fromSchema, partition, toSchema));
+            }
+            st.execute("ALTER TABLE %s.%s SET SCHEMA %s".formatted(fromSchema, table, toSchema));
+        }
+    }
+
+    // the PARTITION BY clause of a partitioned table, or null
+    private static String partitionKey(Connection conn, String schema, String table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT pg_get_partkeydef(c.oid)
+                FROM pg_class c
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = ?
+                  AND c.relname = ?
+                  AND c.relkind = 'p'
+                """)) {
+            ps.setString(1, schema);
+            ps.setString(2, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String schema, String table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT 1 FROM pg_tables WHERE schemaname = ? AND tablename = ?
+                """)) {
+            ps.setString(1, schema);
+            ps.setString(2, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // indexes not backing a constraint (i.e. everything except the primary key)
+    private static List<String> secondaryIndexes(Connection conn, String schema, String table) throws SQLException {
+        List<String> indexes = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT i.relname
+                FROM pg_index x
+                JOIN pg_class i ON i.oid = x.indexrelid
+                JOIN pg_class t ON t.oid = x.indrelid
+                JOIN pg_namespace n ON n.oid = t.relnamespace
+                WHERE n.nspname = ?
+                  AND t.relname = ?
+                  AND NOT EXISTS (
+                      SELECT 1 FROM pg_constraint c WHERE c.conindid = x.indexrelid
+                  )
+                """)) {
+            ps.setString(1, schema);
+            ps.setString(2, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    indexes.add(rs.getString(1));
+                }
+            }
+        }
+        return indexes;
+    }
+}
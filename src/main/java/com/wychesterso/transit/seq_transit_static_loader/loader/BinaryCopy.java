@@ -0,0 +1,116 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.feed.CsvReader;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * COPYs a GTFS CSV file straight into its typed table using binary COPY: each field is
+ * parsed once in Java and sent as a native int2/int4/float8/bool/date value, so neither
+ * a text staging table nor a server-side cast is needed.
+ * <p>
+ * Columns are matched to the CSV by header name; a column missing from the file is NULL.
+ */
+public final class BinaryCopy {
+
+    public enum Type { TEXT, INT2, INT4, FLOAT8, BOOL, DATE }
+
+    /**
+     * @param name column name, both in the table and in the CSV header
+     * @param type how the field is parsed and encoded
+     */
+    public record Column(String name, Type type) {}
+
+    private BinaryCopy() {}
+
+    public static Column text(String name) {
+        return new Column(name, Type.TEXT);
+    }
+
+    public static Column int2(String name) {
+        return new Column(name, Type.INT2);
+    }
+
+    public static Column int4(String name) {
+        return new Column(name, Type.INT4);
+    }
+
+    public static Column float8(String name) {
+        return new Column(name, Type.FLOAT8);
+    }
+
+    /**
+     * A GTFS 0/1 flag.
+     */
+    public static Column bool(String name) {
+        return new Column(name, Type.BOOL);
+    }
+
+    /**
+     * A GTFS YYYYMMDD date.
+     */
+    public static Column date(String name) {
+        return new Column(name, Type.DATE);
+    }
+
+    /**
+     * Copies {@code in}, a CSV file with a header row, into {@code table}.
+     *
+     * @return rows copied
+     */
+    public static long copy(Connection conn, InputStream in, String table, List<Column> columns)
+            throws IOException, SQLException {
+
+        String sql = "COPY %s (%s) FROM STDIN WITH (FORMAT binary)".formatted(
+                table,
+                columns.stream().map(Column::name).collect(Collectors.joining(", ")));
+
+        try (CsvReader csv = new CsvReader(in)) {
+            List<String> header = csv.readHeader();
+            int[] fields = new int[columns.size()];
+            for (int c = 0; c < fields.length; c++) {
+                fields[c] = header.indexOf(columns.get(c).name());
+            }
+
+            PGCopyOutputStream copyOut = new PGCopyOutputStream(conn.unwrap(PGConnection.class), sql);
+            try {
+                PgBinaryWriter writer = new PgBinaryWriter(copyOut);
+                while (csv.next()) {
+                    writer.startRow(fields.length);
+                    for (int c = 0; c < fields.length; c++) {
+                        write(writer, csv, fields[c], columns.get(c).type());
+                    }
+                }
+                // only a complete stream ends the COPY; on failure it is cancelled below
+                writer.close();
+                return writer.rows();
+            } finally {
+                if (copyOut.isActive()) {
+                    copyOut.cancelCopy();
+                }
+            }
+        }
+    }
+
+    private static void write(PgBinaryWriter writer, CsvReader csv, int field, Type type) throws IOException {
+        if (csv.isNull(field)) {
+            writer.writeNull();
+            return;
+        }
+        switch (type) {
+            case TEXT -> writer.writeText(csv.buffer(), csv.start(field), csv.length(field));
+            case INT2 -> writer.writeInt2(csv.intValue(field));
+            case INT4 -> writer.writeInt4(csv.intValue(field));
+            case FLOAT8 -> writer.writeFloat8(csv.doubleValue(field));
+            case BOOL -> writer.writeBool(csv.intValue(field) == 1);
+            case DATE -> writer.writeDate(csv.dateValue(field));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Day partitions of a table partitioned by range of service_date, named {@code <table>_<yyyymmdd>}.
+ * <p>
+ * {@link #reload} builds each day as a standalone table, fills and indexes it while readers keep
+ * using the attached partitions, then swaps the days in within one short transaction: the old
+ * partitions are detached and dropped, and the new tables attached. A CHECK constraint matching
+ * the partition bound lets ATTACH PARTITION skip its validation scan, and indexes matching the
+ * parent's are attached rather than rebuilt. Days that left the window go the same way, so they
+ * leave no dead rows behind for VACUUM.
+ * <p>
+ * All methods run on the caller's connection and transaction, with the parent resolved
+ * through its search_path.
+ */
+public final class DatePartitions {
+
+    private static final Logger log = LoggerFactory.getLogger(DatePartitions.class);
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    /**
+     * Fills {@code target}, a standalone table shaped like {@code table}, with the rows of {@code date}.
+     *
+     * @return rows written
+     */
+    @FunctionalInterface
+    public interface DayLoader {
+        long load(Connection conn, String target, LocalDate date) throws Exception;
+    }
+
+    private final String table;
+    private final List<String> primaryKey;
+    private final IndexBuilder indexes;
+    private final ImportMetrics metrics;
+
+    public DatePartitions(String table, List<String> primaryKey, IndexBuilder indexes, ImportMetrics metrics) {
+        this.table = table;
+        this.primaryKey = List.copyOf(primaryKey);
+        this.indexes = indexes;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Service dates of the loaded window that have services running, from active_services.
+     */
+    public static List<LocalDate> serviceDates(Connection conn) throws SQLException {
+        List<LocalDate> dates = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT DISTINCT service_date FROM active_services ORDER BY 1")) {
+            while (rs.next()) {
+                dates.add(rs.getObject(1, LocalDate.class));
+            }
+        }
+        return dates;
+    }
+
+    public String partition(LocalDate date) {
+        return table + "_" + DAY.format(date);
+    }
+
+    /**
+     * Replaces every day partition with freshly loaded ones for {@code dates}.
+     *
+     * @return rows loaded
+     */
+    public long reload(Connection conn, List<LocalDate> dates, DayLoader loader) throws Exception {
+        Map<LocalDate, String> loaded = new LinkedHashMap<>();
+        long rows = 0;
+
+        for (LocalDate date : dates) {
+            String suffix = "_" + DAY.format(date) + "_load";
+            String target = table + suffix;
+            try (Statement st = conn.createStatement()) {
+                // left over if an earlier import died before its commit
+                st.execute("DROP TABLE IF EXISTS " + target);
+                st.execute("CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS)".formatted(target, table));
+                st.execute("ALTER TABLE %s ADD CONSTRAINT %s_bound CHECK (%s)"
+                        .formatted(target, target, bound(date)));
+            }
+
+            log.info("Loading {} for {}...", target, date);
+            ImportMetrics.Timing copyTiming = metrics.start(table, Phase.COPY);
+            long dayRows = loader.load(conn, target, date);
+            log.info("Loaded {} rows into {} in {} ms", dayRows, target, copyTiming.stop(dayRows, -1));
+            rows += dayRows;
+
+            ImportMetrics.Timing indexTiming = metrics.start(table, Phase.INDEX);
+            try (Statement st = conn.createStatement()) {
+                st.execute("ALTER TABLE %s ADD CONSTRAINT %s_pkey PRIMARY KEY (%s)"
+                        .formatted(target, target, String.join(", ", primaryKey)));
+            }
+            indexes.createOnPartition(conn, table, target, suffix);
+            log.info("Indexes on {} built in {} ms", target, indexTiming.stop());
+
+            loaded.put(date, target);
+        }
+
+        ImportMetrics.Timing swapTiming = metrics.start(table, Phase.COMMIT);
+        try (Statement st = conn.createStatement()) {
+            // fail rather than queue readers behind us for long
+            st.execute("SET LOCAL lock_timeout = '30s'");
+
+            for (String old : partitions(conn).values()) {
+                detach(st, old);
+            }
+            for (Map.Entry<LocalDate, String> day : loaded.entrySet()) {
+                String target = day.getValue();
+                String suffix = "_" + DAY.format(day.getKey());
+                String partition = partition(day.getKey());
+
+                st.execute("ALTER TABLE %s ATTACH PARTITION %s %s"
+                        .formatted(table, target, forValues(day.getKey())));
+                st.execute("ALTER TABLE %s DROP CONSTRAINT %s_bound".formatted(target, target));
+                st.execute("ALTER TABLE %s RENAME TO %s".formatted(target, partition));
+                st.execute("ALTER TABLE %s RENAME CONSTRAINT %s_pkey TO %s_pkey"
+                        .formatted(partition, target, partition));
+                for (TableIndex index : TableIndexes.of(table)) {
+                    st.execute("ALTER INDEX %s RENAME TO %s"
+                            .formatted(index.name() + suffix + "_load", index.name() + suffix));
+                }
+            }
+        }
+        log.info("Swapped in {} partitions of {} in {} ms", loaded.size(), table, swapTiming.stop());
+        return rows;
+    }
+
+    /**
+     * Creates empty partitions for the {@code dates} that have none, and drops those of other days;
+     * for loads that then write through the parent, like {@link TableDiff}.
+     */
+    public void retain(Connection conn, List<LocalDate> dates) throws SQLException {
+        Map<LocalDate, String> existing = partitions(conn);
+        try (Statement st = conn.createStatement()) {
+            st.execute("SET LOCAL lock_timeout = '30s'");
+            for (Map.Entry<LocalDate, String> day : existing.entrySet()) {
+                if (!dates.contains(day.getKey())) {
+                    detach(st, day.getValue());
+                }
+            }
+            for (LocalDate date : dates) {
+                if (!existing.containsKey(date)) {
+                    st.execute("CREATE TABLE %s PARTITION OF %s %s"
+                            .formatted(partition(date), table, forValues(date)));
+                    log.info("Created partition {}", partition(date));
+                }
+            }
+        }
+    }
+
+    // day partitions of the table, by date; partitions not named by this class are left alone
+    private Map<LocalDate, String> partitions(Connection conn) throws SQLException {
+        Map<LocalDate, String> partitions = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = ?::regclass
+                ORDER BY c.relname
+                """)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    LocalDate date = date(name);
+                    if (date != null) {
+                        partitions.put(date, name);
+                    }
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private LocalDate date(String partition) {
+        String prefix = table + "_";
+        if (!partition.startsWith(prefix) || partition.length() != prefix.length() + 8) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(prefix.length()), DAY);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private void detach(Statement st, String partition) throws SQLException {
+        st.execute("ALTER TABLE %s DETACH PARTITION %s".formatted(table, partition));
+        st.execute("DROP TABLE " + partition);
+        log.info("Dropped partition {}", partition);
+    }
+
+    private static String bound(LocalDate date) {
+        return "service_date >= DATE '%s' AND service_date < DATE '%s'".formatted(date, date.plusDays(1));
+    }
+
+    private static String forValues(LocalDate date) {
+        return "FOR VALUES FROM ('%s') TO ('%s')".formatted(date, date.plusDays(1));
+    }
+}
@@ -0,0 +1,130 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds departures from the loaded stop_times, trips and routes: each departure a rider can
+ * board (a departure time, and pickup not ruled out), with its route and headsign alongside.
+ * Like stop_times, departures has one partition per service date (see {@link DatePartitions}),
+ * and each day's rows are inserted in (stop_id, departure_time) order, the order of
+ * idx_departures_stop_time, so "departures at a stop" is one index range scan over a handful
+ * of heap pages, with no joins and no active-service filter.
+ * <p>
+ * In diff mode changed rows are appended wherever there is room, so the heap order
+ * holds only until the next full load.
+ */
+@Component
+public class DepartureLoader implements GtfsLoader {
+
+    private final DataSource dataSource;
+    private final ImportMetrics metrics;
+    private final IndexBuilder indexes;
+    private final DatePartitions partitions;
+    private static final Logger log = LoggerFactory.getLogger(DepartureLoader.class);
+
+    private static final List<String> KEY = List.of("service_date", "trip_id", "stop_sequence");
+
+    public DepartureLoader(DataSource dataSource, ImportMetrics metrics, IndexBuilder indexes) {
+        this.dataSource = dataSource;
+        this.metrics = metrics;
+        this.indexes = indexes;
+        this.partitions = new DatePartitions("departures", KEY, indexes, metrics);
+    }
+
+    @Override
+    public Set<String> produces() {
+        return Set.of("departures");
+    }
+
+    @Override
+    public Set<String> dependsOn() {
+        return Set.of("stop_times", "trips", "routes", "trip_keys", "stop_keys", "active_services");
+    }
+
+    @Override
+    public void load(LoadContext ctx) throws Exception {
+
+        long start = System.currentTimeMillis();
+        log.info("Starting DepartureLoader...");
+
+        try (Connection conn = dataSource.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET LOCAL synchronous_commit = OFF");
+                st.execute("SET LOCAL search_path TO " + ctx.schema());
+            }
+
+            List<LocalDate> dates = DatePartitions.serviceDates(conn);
+
+            if (ctx.diff()) {
+                partitions.retain(conn, dates);
+                String target = TableDiff.stage(conn, "departures");
+                for (LocalDate date : dates) {
+                    insert(conn, target, date);
+                }
+                ImportMetrics.Timing diffTiming = metrics.start("departures", Phase.DIFF);
+                diffTiming.stop(TableDiff.apply(conn, "departures", KEY), -1);
+            } else {
+                partitions.reload(conn, dates, this::insert);
+            }
+
+            log.info("Committing changes...");
+            ImportMetrics.Timing commitTiming = metrics.start("departures", Phase.COMMIT);
+            conn.commit();
+            commitTiming.stop();
+
+            if (!ctx.diff() && !ctx.live()) {
+                // the shadow parent starts without indexes; building them attaches the partitions' own
+                ImportMetrics.Timing indexTiming = metrics.start("departures", Phase.INDEX);
+                indexes.create(ctx.schema(), "departures");
+                log.info("Indexes on departures attached in {} ms", indexTiming.stop());
+            }
+
+            log.info("DepartureLoader finished in {} ms",
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    private long insert(Connection conn, String target, LocalDate date) throws SQLException {
+        log.info("Starting transform + insert into {} for {}...", target, date);
+        ImportMetrics.Timing transformTiming = metrics.start("departures", Phase.TRANSFORM);
+        try (PreparedStatement ps = conn.prepareStatement("""
+                INSERT INTO %s (service_date, stop_id, departure_time, trip_id, stop_sequence,
+                                route_id, route_short_name, route_color, route_text_color,
+                                trip_headsign, direction_id)
+                SELECT st.service_date, sk.stop_id, st.departure_time, tk.trip_id, st.stop_sequence,
+                       r.route_id, r.route_short_name, r.route_color, r.route_text_color,
+                       t.trip_headsign, t.direction_id
+                FROM stop_times st
+                JOIN stop_keys sk USING (stop_key)
+                JOIN trip_keys tk USING (trip_key)
+                JOIN trips t ON t.trip_id = tk.trip_id
+                JOIN routes r ON r.route_id = t.route_id
+                WHERE st.service_date = ?
+                  AND st.departure_time IS NOT NULL
+                  AND st.pickup_type IS DISTINCT FROM 1
+                ORDER BY sk.stop_id, st.departure_time
+                """.formatted(target))) {
+            ps.setObject(1, date);
+            int rows = ps.executeUpdate();
+            log.info("Insert finished: {} rows in {} ms",
+                    rows, transformTiming.stop(rows, -1));
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import java.util.Set;
+
+/**
+ * A single step of the GTFS import. Loaders declare the tables they write and
+ * the tables they read, so the orchestrator can run independent loaders in parallel.
+ */
+public interface GtfsLoader {
+
+    /**
+     * Tables this loader (re)populates.
+     */
+    Set<String> produces();
+
+    /**
+     * Tables that must be fully loaded before this loader starts.
+     */
+    default Set<String> dependsOn() {
+        return Set.of();
+    }
+
+    default String name() {
+        return getClass().getSimpleName();
+    }
+
+    void load(LoadContext ctx) throws Exception;
+}
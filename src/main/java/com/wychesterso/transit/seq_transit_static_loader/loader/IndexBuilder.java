@@ -0,0 +1,209 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.importer.TableGenerations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drops and builds the secondary indexes declared in {@link TableIndexes} around a bulk
+ * load of their table. Each CREATE INDEX runs on its
+ * own pooled connection, so a table's indexes are built by several backends at once,
+ * and every build session gets {@code maintenance_work_mem} and
+ * {@code max_parallel_maintenance_workers} raised for the sort.
+ * <p>
+ * Other connections only see committed rows, so {@link #create} must be called after the
+ * table's data is committed. Loaders that keep the table in an open transaction use
+ * {@link #createInTransaction}, which builds one index after another on that connection.
+ */
+@Component
+public class IndexBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexBuilder.class);
+
+    private final DataSource dataSource;
+
+    // connections building indexes of one table at once
+    @Value("${gtfs.index.parallelism}")
+    private int parallelism;
+
+    // sort memory per index build
+    @Value("${gtfs.index.maintenance-work-mem}")
+    private String maintenanceWorkMem;
+
+    // parallel workers PostgreSQL may add to each index build
+    @Value("${gtfs.index.parallel-workers}")
+    private int parallelWorkers;
+
+    public IndexBuilder(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Fails if {@link TableIndexes} declares an index that the live primary keys already serve.
+     */
+    public void validate() throws SQLException {
+        Map<String, List<String>> primaryKeys = new HashMap<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("""
+                     SELECT t.relname, a.attname
+                     FROM pg_constraint c
+                     JOIN pg_class t ON t.oid = c.conrelid
+                     JOIN pg_namespace n ON n.oid = t.relnamespace
+                     CROSS JOIN LATERAL unnest(c.conkey) WITH ORDINALITY AS k(attnum, position)
+                     JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = k.attnum
+                     WHERE c.contype = 'p'
+                       AND n.nspname = ?
+                     ORDER BY t.relname, k.position
+                     """)) {
+            ps.setString(1, TableGenerations.LIVE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    primaryKeys.computeIfAbsent(rs.getString(1), t -> new ArrayList<>()).add(rs.getString(2));
+                }
+            }
+        }
+
+        List<String> problems = TableIndexes.redundant(TableIndexes.ALL, primaryKeys);
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Redundant indexes declared in TableIndexes: " + problems);
+        }
+    }
+
+    /**
+     * Drops the declared indexes of {@code table} ahead of a bulk load.
+     */
+    public void drop(Connection conn, String table) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (TableIndex index : TableIndexes.of(table)) {
+                st.execute(index.dropStatement());
+            }
+        }
+    }
+
+    /**
+     * Builds the declared indexes of {@code table} in {@code schema}, in parallel on separate connections.
+     */
+    public void create(String schema, String table) throws Exception {
+        create(schema, statements(table));
+    }
+
+    /**
+     * Builds the declared indexes of {@code table} one after another inside the transaction open on {@code conn}.
+     */
+    public void createInTransaction(Connection conn, String table) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("SET LOCAL maintenance_work_mem = '" + maintenanceWorkMem + "'");
+            st.execute("SET LOCAL max_parallel_maintenance_workers = " + parallelWorkers);
+            for (String statement : statements(table)) {
+                st.execute(statement);
+            }
+        }
+    }
+
+    /**
+     * Builds the declared indexes of {@code table} on {@code partition}, a table with the same columns,
+     * one after another inside the transaction open on {@code conn}. Each is named after the declared
+     * index plus {@code suffix}.
+     */
+    public void createOnPartition(Connection conn, String table, String partition, String suffix) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("SET LOCAL maintenance_work_mem = '" + maintenanceWorkMem + "'");
+            st.execute("SET LOCAL max_parallel_maintenance_workers = " + parallelWorkers);
+            for (TableIndex index : TableIndexes.of(table)) {
+                st.execute(index.createStatement(index.name() + suffix, partition));
+            }
+        }
+    }
+
+    private static List<String> statements(String table) {
+        return TableIndexes.of(table).stream().map(TableIndex::createStatement).toList();
+    }
+
+    private void create(String schema, List<String> statements) throws Exception {
+        if (parallelism < 1) {
+            throw new IllegalStateException("gtfs.index.parallelism must be >= 1, was " + parallelism);
+        }
+
+        long start = System.currentTimeMillis();
+        int threads = Math.min(parallelism, statements.size());
+        if (threads <= 1) {
+            for (String statement : statements) {
+                createOne(schema, statement);
+            }
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "gtfs-index-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<?>> builds = new ArrayList<>();
+            for (String statement : statements) {
+                builds.add(pool.submit(() -> {
+                    createOne(schema, statement);
+                    return null;
+                }));
+            }
+
+            // wait for every build, so none is still running against the table on failure
+            Exception failure = null;
+            for (Future<?> build : builds) {
+                try {
+                    build.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception cause ? cause : e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        log.info("Built {} indexes on {} connections in {} ms",
+                statements.size(), threads, System.currentTimeMillis() - start);
+    }
+
+    private void createOne(String schema, String statement) throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            try {
+                st.execute("SET search_path TO " + schema);
+                st.execute("SET maintenance_work_mem = '" + maintenanceWorkMem + "'");
+                st.execute("SET max_parallel_maintenance_workers = " + parallelWorkers);
+                st.execute(statement);
+            } finally {
+                // session settings would otherwise stay on the pooled connection, even after a failure
+                st.execute("RESET ALL");
+            }
+        }
+        log.info("{} in {} ms", statement,
+                System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,109 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.importer.TableGenerations;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Assigns integer surrogate keys to trip and stop IDs in trip_keys and stop_keys, which
+ * stop_times stores instead of the text IDs. An ID keeps its key across imports, so unchanged
+ * stop_times rows stay unchanged for {@link TableDiff}.
+ * <p>
+ * Feeds replace their trip IDs from version to version, so keys are pruned once neither the
+ * source table nor stop_times refers to them; in direct and diff mode that is the import after
+ * the ID left the feed, as stop_times is reloaded after this loader. New keys continue from the
+ * highest key, which is never pruned, so keys are not reused.
+ */
+@Component
+public class KeyDictionaryLoader implements GtfsLoader {
+
+    private final DataSource dataSource;
+    private final ImportMetrics metrics;
+    private static final Logger log = LoggerFactory.getLogger(KeyDictionaryLoader.class);
+
+    /**
+     * A dictionary table mapping the {@code id} column of {@code source} to {@code key}.
+     */
+    private record Dictionary(String table, String key, String id, String source) {}
+
+    private static final List<Dictionary> DICTIONARIES = List.of(
+            new Dictionary("trip_keys", "trip_key", "trip_id", "trips"),
+            new Dictionary("stop_keys", "stop_key", "stop_id", "stops")
+    );
+
+    public KeyDictionaryLoader(DataSource dataSource, ImportMetrics metrics) {
+        this.dataSource = dataSource;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Set<String> produces() {
+        return Set.of("trip_keys", "stop_keys");
+    }
+
+    @Override
+    public Set<String> dependsOn() {
+        return Set.of("trips", "stops");
+    }
+
+    @Override
+    public void load(LoadContext ctx) throws Exception {
+
+        long start = System.currentTimeMillis();
+        log.info("Starting KeyDictionaryLoader...");
+
+        try (Connection conn = dataSource.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET LOCAL synchronous_commit = OFF");
+                st.execute("SET LOCAL search_path TO " + ctx.schema());
+
+                for (Dictionary d : DICTIONARIES) {
+                    // a shadow generation starts empty, so carry the live keys over first
+                    if (!ctx.live()) {
+                        int carried = st.executeUpdate("INSERT INTO %s SELECT * FROM %s.%s"
+                                .formatted(d.table(), TableGenerations.LIVE, d.table()));
+                        log.info("Carried {} keys over into {}", carried, d.table());
+                    }
+
+                    ImportMetrics.Timing timing = metrics.start(d.table(), Phase.TRANSFORM);
+                    int added = st.executeUpdate("""
+                            INSERT INTO %1$s (%2$s, %3$s)
+                            SELECT (SELECT coalesce(max(%2$s), 0) FROM %1$s) + row_number() OVER (ORDER BY %3$s), %3$s
+                            FROM (SELECT DISTINCT %3$s FROM %4$s) ids
+                            WHERE NOT EXISTS (SELECT 1 FROM %1$s k WHERE k.%3$s = ids.%3$s)
+                            """.formatted(d.table(), d.key(), d.id(), d.source()));
+                    log.info("Assigned {} new keys in {} in {} ms",
+                            added, d.table(), timing.stop(added, -1));
+
+                    int pruned = st.executeUpdate("""
+                            DELETE FROM %1$s k
+                            WHERE NOT EXISTS (SELECT 1 FROM %4$s s WHERE s.%3$s = k.%3$s)
+                              AND NOT EXISTS (SELECT 1 FROM stop_times st WHERE st.%2$s = k.%2$s)
+                              AND k.%2$s < (SELECT max(%2$s) FROM %1$s)
+                            """.formatted(d.table(), d.key(), d.id(), d.source()));
+                    log.info("Pruned {} unreferenced keys from {}", pruned, d.table());
+                }
+            }
+
+            log.info("Committing changes...");
+            ImportMetrics.Timing commitTiming = metrics.start("trip_keys", Phase.COMMIT);
+            conn.commit();
+            commitTiming.stop();
+
+            log.info("KeyDictionaryLoader finished in {} ms",
+                    System.currentTimeMillis() - start);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.feed.GtfsFeed;
+import com.wychesterso.transit.seq_transit_static_loader.importer.TableGenerations;
+
+/**
+ * Inputs for a single import run.
+ *
+ * @param feed   the GTFS files to load
+ * @param schema schema the loaders write into; loaders set it as the search_path of their
+ *               transaction, so unqualified table names resolve to this generation
+ * @param diff   stage the feed and apply only the changed rows (see {@link TableDiff})
+ *               instead of truncating and reloading
+ * @param binaryCopy parse typed columns in Java and send them with binary COPY
+ *                   (see {@link BinaryCopy}) instead of COPYing CSV text
+ */
+public record LoadContext(
+        GtfsFeed feed,
+        String schema,
+        boolean diff,
+        boolean binaryCopy
+) {
+
+    /**
+     * Whether readers query the tables being loaded, rather than a shadow generation.
+     */
+    public boolean live() {
+        return TableGenerations.LIVE.equals(schema);
+    }
+}
@@ -0,0 +1,192 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes rows in PostgreSQL's binary COPY format ({@code COPY ... FROM STDIN WITH (FORMAT binary)}),
+ * so the server stores the values as sent instead of parsing text for every column.
+ * <p>
+ * Each row starts with {@link #startRow(int)} followed by exactly that many values, in the
+ * column order of the COPY statement. {@link #close()} writes the trailer and closes the stream.
+ * <p>
+ * Rows can also be encoded on other threads with {@link #rowsOnly}, which leaves out the
+ * header and trailer, and appended to the COPY stream with {@link #writeRows}.
+ */
+public final class PgBinaryWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    // binary dates are days since 2000-01-01
+    private static final long PG_EPOCH_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+
+    private final OutputStream out;
+    private final boolean framed;
+    private final byte[] buf = new byte[64 * 1024];
+    private int pos;
+    private long rows;
+
+    public PgBinaryWriter(OutputStream out) {
+        this(out, true);
+    }
+
+    private PgBinaryWriter(OutputStream out, boolean framed) {
+        this.out = out;
+        this.framed = framed;
+        if (framed) {
+            System.arraycopy(SIGNATURE, 0, buf, 0, SIGNATURE.length);
+            pos = SIGNATURE.length;
+            putInt(0); // flags
+            putInt(0); // header extension length
+        }
+    }
+
+    /**
+     * A writer for rows only, without the COPY header and trailer, to be passed to {@link #writeRows}.
+     */
+    public static PgBinaryWriter rowsOnly(OutputStream out) {
+        return new PgBinaryWriter(out, false);
+    }
+
+    public void startRow(int columns) throws IOException {
+        ensure(2);
+        putShort(columns);
+        rows++;
+    }
+
+    public void writeNull() throws IOException {
+        ensure(4);
+        putInt(-1);
+    }
+
+    public void writeInt2(int value) throws IOException {
+        ensure(6);
+        putInt(2);
+        putShort(value);
+    }
+
+    public void writeInt4(int value) throws IOException {
+        ensure(8);
+        putInt(4);
+        putInt(value);
+    }
+
+    public void writeFloat8(double value) throws IOException {
+        ensure(12);
+        putInt(8);
+        long bits = Double.doubleToRawLongBits(value);
+        putInt((int) (bits >>> 32));
+        putInt((int) bits);
+    }
+
+    public void writeBool(boolean value) throws IOException {
+        ensure(5);
+        putInt(1);
+        buf[pos++] = (byte) (value ? 1 : 0);
+    }
+
+    public void writeDate(long epochDay) throws IOException {
+        writeInt4((int) (epochDay - PG_EPOCH_DAY));
+    }
+
+    /**
+     * Writes text that is already UTF-8 encoded.
+     */
+    public void writeText(byte[] utf8, int offset, int length) throws IOException {
+        ensure(4);
+        putInt(length);
+        if (length > buf.length - pos) {
+            flush();
+            out.write(utf8, offset, length);
+        } else {
+            System.arraycopy(utf8, offset, buf, pos, length);
+            pos += length;
+        }
+    }
+
+    public void writeText(String value) throws IOException {
+        if (value == null) {
+            writeNull();
+        } else {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeText(utf8, 0, utf8.length);
+        }
+    }
+
+    /**
+     * Writes a bit string (BIT VARYING) given as '0' and '1' characters, first bit first.
+     */
+    public void writeBits(CharSequence bits) throws IOException {
+        // the bit count, then the bits packed most significant first, zero-padded to a whole byte
+        byte[] value = new byte[4 + (bits.length() + 7) / 8];
+        int length = bits.length();
+        value[0] = (byte) (length >>> 24);
+        value[1] = (byte) (length >>> 16);
+        value[2] = (byte) (length >>> 8);
+        value[3] = (byte) length;
+        for (int i = 0; i < length; i++) {
+            if (bits.charAt(i) == '1') {
+                value[4 + i / 8] |= (byte) (0x80 >>> (i % 8));
+            }
+        }
+        // length-prefixed like any other value
+        writeText(value, 0, value.length);
+    }
+
+    /**
+     * Appends {@code count} rows encoded by a {@link #rowsOnly} writer.
+     */
+    public void writeRows(byte[] encoded, int offset, int length, long count) throws IOException {
+        if (length > buf.length - pos) {
+            flush();
+            out.write(encoded, offset, length);
+        } else {
+            System.arraycopy(encoded, offset, buf, pos, length);
+            pos += length;
+        }
+        rows += count;
+    }
+
+    /**
+     * Rows written so far.
+     */
+    public long rows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (framed) {
+            ensure(2);
+            putShort(-1);
+        }
+        flush();
+        out.close();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buf.length - pos < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        out.write(buf, 0, pos);
+        pos = 0;
+    }
+
+    private void putShort(int value) {
+        buf[pos++] = (byte) (value >>> 8);
+        buf[pos++] = (byte) value;
+    }
+
+    private void putInt(int value) {
+        buf[pos++] = (byte) (value >>> 24);
+        buf[pos++] = (byte) (value >>> 16);
+        buf[pos++] = (byte) (value >>> 8);
+        buf[pos++] = (byte) value;
+    }
+}
@@ -0,0 +1,168 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds route_patterns and stop_routes from the loaded stop_times, so "which routes serve
+ * this stop" and "the stops of route R in direction D" are small indexed reads instead of
+ * scans of stop_times.
+ * <p>
+ * A pattern is a distinct ordered stop list run by trips of one route and direction. Its
+ * pattern_id is a hash of the route, direction and stop list, so a pattern keeps its ID
+ * across imports while it runs, and {@link TableDiff} leaves unchanged patterns alone.
+ * stop_routes is then derived from route_patterns, one row per stop and route.
+ */
+@Component
+public class RoutePatternLoader implements GtfsLoader {
+
+    private final DataSource dataSource;
+    private final ImportMetrics metrics;
+    private final IndexBuilder indexes;
+    private static final Logger log = LoggerFactory.getLogger(RoutePatternLoader.class);
+
+    /**
+     * A derived table, filled by {@code insert} with the target table as its one format argument.
+     */
+    private record Derived(String table, List<String> key, String insert) {}
+
+    private static final List<Derived> TABLES = List.of(
+            new Derived("route_patterns", List.of("pattern_id"), """
+                    INSERT INTO %s (pattern_id, route_id, direction_id, stop_ids, stop_count, trip_count)
+                    WITH trip_stops AS (
+                        -- a trip's stops on the first day it runs in the window
+                        SELECT DISTINCT ON (trip_key) trip_key, stop_ids
+                        FROM (
+                            SELECT st.service_date, st.trip_key,
+                                   array_agg(sk.stop_id ORDER BY st.stop_sequence) AS stop_ids
+                            FROM stop_times st
+                            JOIN stop_keys sk USING (stop_key)
+                            GROUP BY st.service_date, st.trip_key
+                        ) days
+                        ORDER BY trip_key, service_date
+                    ),
+                    patterns AS (
+                        SELECT t.route_id, t.direction_id, ts.stop_ids, count(*) AS trip_count
+                        FROM trip_stops ts
+                        JOIN trip_keys tk USING (trip_key)
+                        JOIN trips t ON t.trip_id = tk.trip_id
+                        GROUP BY t.route_id, t.direction_id, ts.stop_ids
+                    )
+                    SELECT left(md5(route_id || chr(31) || coalesce(direction_id::text, '') || chr(31)
+                                    || array_to_string(stop_ids, chr(31))), 16),
+                           route_id, direction_id, stop_ids, cardinality(stop_ids), trip_count
+                    FROM patterns
+                    ORDER BY route_id, direction_id, trip_count DESC
+                    """),
+            new Derived("stop_routes", List.of("stop_id", "route_id"), """
+                    INSERT INTO %s (stop_id, route_id, route_short_name, route_color, route_text_color,
+                                    pattern_count, trip_count)
+                    SELECT s.stop_id, p.route_id, r.route_short_name, r.route_color, r.route_text_color,
+                           count(*), sum(p.trip_count)
+                    FROM route_patterns p
+                    -- a loop calls at some stops twice, but is one pattern there
+                    CROSS JOIN LATERAL (SELECT DISTINCT unnest(p.stop_ids)) s(stop_id)
+                    JOIN routes r ON r.route_id = p.route_id
+                    GROUP BY s.stop_id, p.route_id, r.route_short_name, r.route_color, r.route_text_color
+                    ORDER BY s.stop_id, p.route_id
+                    """)
+    );
+
+    public RoutePatternLoader(DataSource dataSource, ImportMetrics metrics, IndexBuilder indexes) {
+        this.dataSource = dataSource;
+        this.metrics = metrics;
+        this.indexes = indexes;
+    }
+
+    @Override
+    public Set<String> produces() {
+        return Set.of("route_patterns", "stop_routes");
+    }
+
+    @Override
+    public Set<String> dependsOn() {
+        return Set.of("stop_times", "trips", "routes", "trip_keys", "stop_keys");
+    }
+
+    @Override
+    public void load(LoadContext ctx) throws Exception {
+
+        long start = System.currentTimeMillis();
+        log.info("Starting RoutePatternLoader...");
+
+        try (Connection conn = dataSource.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET LOCAL synchronous_commit = OFF");
+                st.execute("SET LOCAL search_path TO " + ctx.schema());
+            }
+
+            // in order: stop_routes reads the route_patterns just written
+            for (Derived derived : TABLES) {
+                build(conn, ctx, derived);
+            }
+
+            log.info("Committing changes...");
+            ImportMetrics.Timing commitTiming = metrics.start("route_patterns", Phase.COMMIT);
+            conn.commit();
+            commitTiming.stop();
+
+            if (!ctx.diff() && !ctx.live()) {
+                for (Derived derived : TABLES) {
+                    log.info("Recreating indexes on {}...", derived.table());
+                    ImportMetrics.Timing indexTiming = metrics.start(derived.table(), Phase.INDEX);
+                    indexes.create(ctx.schema(), derived.table());
+                    log.info("Indexes on {} recreated in {} ms", derived.table(), indexTiming.stop());
+                }
+            }
+
+            log.info("RoutePatternLoader finished in {} ms",
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    private void build(Connection conn, LoadContext ctx, Derived derived) throws SQLException {
+        String table = derived.table();
+
+        String target = table;
+        if (ctx.diff()) {
+            target = TableDiff.stage(conn, table);
+        } else {
+            log.info("Dropping indexes on {}...", table);
+            indexes.drop(conn, table);
+            try (Statement st = conn.createStatement()) {
+                st.execute("TRUNCATE " + table);
+            }
+        }
+
+        log.info("Starting transform + insert into {}...", target);
+        ImportMetrics.Timing transformTiming = metrics.start(table, Phase.TRANSFORM);
+        try (Statement st = conn.createStatement()) {
+            int rows = st.executeUpdate(derived.insert().formatted(target));
+            log.info("Insert finished: {} rows in {} ms",
+                    rows, transformTiming.stop(rows, -1));
+        }
+
+        if (ctx.diff()) {
+            ImportMetrics.Timing diffTiming = metrics.start(table, Phase.DIFF);
+            diffTiming.stop(TableDiff.apply(conn, table, derived.key()), -1);
+        } else if (ctx.live()) {
+            log.info("Recreating indexes on {}...", table);
+            ImportMetrics.Timing indexTiming = metrics.start(table, Phase.INDEX);
+            indexes.createInTransaction(conn, table);
+            log.info("Indexes on {} recreated in {} ms", table, indexTiming.stop());
+        }
+    }
+}
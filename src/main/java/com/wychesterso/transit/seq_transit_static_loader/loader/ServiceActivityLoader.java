@@ -0,0 +1,172 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.feed.GtfsFeed;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
+import com.wychesterso.transit.seq_transit_static_loader.time.ServiceCalendar;
+import com.wychesterso.transit.seq_transit_static_loader.time.ServiceTimeHelper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolves calendar.txt and calendar_dates.txt once, in memory, into a
+ * {@link ServiceCalendar}, and stores it as one bit string per service in
+ * service_activity. The services running on each date of the loaded window
+ * are taken from the same calendar into active_services.
+ */
+@Component
+public class ServiceActivityLoader implements GtfsLoader {
+
+    private final DataSource dataSource;
+    private final ImportMetrics metrics;
+    private static final Logger log = LoggerFactory.getLogger(ServiceActivityLoader.class);
+
+    // number of service days, starting today, loaded into stop_times
+    @Value("${gtfs.service-window-days}")
+    private int serviceWindowDays;
+
+    public ServiceActivityLoader(DataSource dataSource, ImportMetrics metrics) {
+        this.dataSource = dataSource;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Set<String> produces() {
+        return Set.of("service_activity", "active_services");
+    }
+
+    @Override
+    public void load(LoadContext ctx) throws Exception {
+
+        GtfsFeed feed = ctx.feed();
+        if (!feed.contains("calendar.txt") && !feed.contains("calendar_dates.txt")) {
+            throw new IllegalStateException("Neither calendar.txt nor calendar_dates.txt found in " + feed);
+        }
+
+        if (serviceWindowDays < 1) {
+            throw new IllegalStateException("gtfs.service-window-days must be >= 1, was " + serviceWindowDays);
+        }
+
+        // keep the services running from the current service date onwards
+        LocalDate firstDate = ServiceTimeHelper.now().serviceDate();
+        LocalDate lastDate = firstDate.plusDays(serviceWindowDays - 1);
+
+        long start = System.currentTimeMillis();
+        log.info("Starting ServiceActivityLoader...");
+
+        ImportMetrics.Timing resolveTiming = metrics.start("service_activity", Phase.TRANSFORM);
+        ServiceCalendar calendar = ServiceCalendar.read(feed);
+        log.info("Resolved {} services over {} to {} in {} ms",
+                calendar.serviceIds().size(), calendar.firstDate(), calendar.lastDate(),
+                resolveTiming.stop(calendar.serviceIds().size(), -1));
+
+        try (Connection conn = dataSource.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET LOCAL synchronous_commit = OFF");
+                st.execute("SET LOCAL search_path TO " + ctx.schema());
+            }
+
+            // one bit string per service
+            String activity = ctx.diff() ? TableDiff.stage(conn, "service_activity") : "service_activity";
+            if (!ctx.diff()) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("TRUNCATE service_activity");
+                }
+            }
+
+            ImportMetrics.Timing activityTiming = metrics.start("service_activity", Phase.COPY);
+            long activityRows = copy(conn, "%s (service_id, start_date, active_days)".formatted(activity), writer -> {
+                for (String serviceId : calendar.serviceIds()) {
+                    LocalDate first = calendar.firstActiveDate(serviceId);
+                    writer.startRow(3);
+                    writer.writeText(serviceId);
+                    if (first == null) {
+                        writer.writeNull();
+                    } else {
+                        writer.writeDate(first.toEpochDay());
+                    }
+                    writer.writeBits(calendar.activeDayBits(serviceId));
+                }
+            });
+            log.info("COPY service_activity finished: {} rows in {} ms",
+                    activityRows, activityTiming.stop(activityRows, -1));
+
+            if (ctx.diff()) {
+                ImportMetrics.Timing diffTiming = metrics.start("service_activity", Phase.DIFF);
+                diffTiming.stop(TableDiff.apply(conn, "service_activity", List.of("service_id")), -1);
+            }
+
+            // services running on every date in the window
+            log.info("Building active_services for {} to {}...", firstDate, lastDate);
+            String activeServices = ctx.diff() ? TableDiff.stage(conn, "active_services") : "active_services";
+            if (!ctx.diff()) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("TRUNCATE active_services");
+                }
+            }
+
+            ImportMetrics.Timing activeTiming = metrics.start("active_services", Phase.COPY);
+            long activeRows = copy(conn, "%s (service_date, service_id)".formatted(activeServices), writer -> {
+                for (LocalDate d = firstDate; !d.isAfter(lastDate); d = d.plusDays(1)) {
+                    for (String serviceId : calendar.activeServices(d)) {
+                        writer.startRow(2);
+                        writer.writeDate(d.toEpochDay());
+                        writer.writeText(serviceId);
+                    }
+                }
+            });
+            log.info("COPY active_services finished: {} rows in {} ms",
+                    activeRows, activeTiming.stop(activeRows, -1));
+
+            if (ctx.diff()) {
+                ImportMetrics.Timing diffTiming = metrics.start("active_services", Phase.DIFF);
+                diffTiming.stop(TableDiff.apply(conn, "active_services", List.of("service_date", "service_id")), -1);
+            }
+
+            log.info("Committing changes...");
+            ImportMetrics.Timing commitTiming = metrics.start("service_activity", Phase.COMMIT);
+            conn.commit();
+            commitTiming.stop();
+
+            log.info("ServiceActivityLoader finished in {} ms",
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Rows {
+        void write(PgBinaryWriter writer) throws IOException;
+    }
+
+    // binary COPY, so IDs go over as sent, with no text COPY escaping to get wrong
+    private static long copy(Connection conn, String target, Rows rows) throws SQLException, IOException {
+        PGCopyOutputStream copyOut = new PGCopyOutputStream(conn.unwrap(PGConnection.class),
+                "COPY %s FROM STDIN WITH (FORMAT binary)".formatted(target));
+        try {
+            PgBinaryWriter writer = new PgBinaryWriter(copyOut);
+            rows.write(writer);
+            writer.close();
+            return writer.rows();
+        } finally {
+            if (copyOut.isActive()) {
+                copyOut.cancelCopy();
+            }
+        }
+    }
+}
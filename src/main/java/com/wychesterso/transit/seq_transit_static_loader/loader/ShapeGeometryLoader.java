@@ -0,0 +1,172 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.geo.Polylines;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds shape_geometries from the loaded shapes: for each shape and each configured
+ * tolerance, the Douglas-Peucker-simplified line as an encoded polyline (see {@link Polylines}).
+ * A map then draws a shape from one row instead of an ordered scan over its points.
+ */
+@Component
+public class ShapeGeometryLoader implements GtfsLoader {
+
+    private final DataSource dataSource;
+    private final ImportMetrics metrics;
+    private static final Logger log = LoggerFactory.getLogger(ShapeGeometryLoader.class);
+
+    // simplification tolerances in metres; 0 stores every point
+    @Value("${gtfs.shapes.tolerances-m}")
+    private double[] tolerances;
+
+    public ShapeGeometryLoader(DataSource dataSource, ImportMetrics metrics) {
+        this.dataSource = dataSource;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Set<String> produces() {
+        return Set.of("shape_geometries");
+    }
+
+    @Override
+    public Set<String> dependsOn() {
+        return Set.of("shapes");
+    }
+
+    @Override
+    public void load(LoadContext ctx) throws Exception {
+
+        for (double tolerance : tolerances) {
+            if (tolerance < 0) {
+                throw new IllegalStateException("gtfs.shapes.tolerances-m must be >= 0, was " + tolerance);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        log.info("Starting ShapeGeometryLoader with tolerances {} m...", Arrays.toString(tolerances));
+
+        try (Connection conn = dataSource.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET LOCAL synchronous_commit = OFF");
+                st.execute("SET LOCAL search_path TO " + ctx.schema());
+            }
+
+            String target = ctx.diff() ? TableDiff.stage(conn, "shape_geometries") : "shape_geometries";
+            if (!ctx.diff()) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("TRUNCATE shape_geometries");
+                }
+            }
+
+            // a connection cannot COPY while it reads a cursor, so the shapes are read on a second
+            // one and each simplified row goes straight into the COPY stream
+            log.info("Starting simplify + COPY into {}...", target);
+            ImportMetrics.Timing copyTiming = metrics.start("shape_geometries", Phase.COPY);
+            long rows;
+            PGCopyOutputStream copyOut = new PGCopyOutputStream(conn.unwrap(PGConnection.class),
+                    "COPY %s (shape_id, tolerance_m, point_count, polyline) FROM STDIN WITH (FORMAT binary)"
+                            .formatted(target));
+            try (Connection read = dataSource.getConnection()) {
+                // a cursor needs a transaction
+                read.setAutoCommit(false);
+                try (Statement st = read.createStatement()) {
+                    st.execute("SET LOCAL search_path TO " + ctx.schema());
+                }
+
+                PgBinaryWriter writer = new PgBinaryWriter(copyOut);
+                readShapes(read, writer);
+                writer.close();
+                rows = writer.rows();
+                read.commit();
+            } finally {
+                if (copyOut.isActive()) {
+                    copyOut.cancelCopy();
+                }
+            }
+            log.info("Simplify + COPY shape_geometries finished: {} rows in {} ms",
+                    rows, copyTiming.stop(rows, -1));
+
+            if (ctx.diff()) {
+                ImportMetrics.Timing diffTiming = metrics.start("shape_geometries", Phase.DIFF);
+                diffTiming.stop(TableDiff.apply(conn, "shape_geometries", List.of("shape_id", "tolerance_m")), -1);
+            }
+
+            log.info("Committing changes...");
+            ImportMetrics.Timing commitTiming = metrics.start("shape_geometries", Phase.COMMIT);
+            conn.commit();
+            commitTiming.stop();
+
+            log.info("ShapeGeometryLoader finished in {} ms",
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    // streams shapes in point order, writing one row per shape and tolerance
+    private void readShapes(Connection conn, PgBinaryWriter writer) throws Exception {
+        String shapeId = null;
+        double[] lat = new double[1024];
+        double[] lon = new double[1024];
+        int n = 0;
+
+        try (Statement st = conn.createStatement()) {
+            st.setFetchSize(10_000);
+            try (ResultSet rs = st.executeQuery("""
+                    SELECT shape_id, shape_pt_lat, shape_pt_lon
+                    FROM shapes
+                    ORDER BY shape_id, shape_pt_sequence
+                    """)) {
+                while (rs.next()) {
+                    String id = rs.getString(1);
+                    if (!id.equals(shapeId)) {
+                        if (shapeId != null) {
+                            write(writer, shapeId, lat, lon, n);
+                        }
+                        shapeId = id;
+                        n = 0;
+                    }
+                    if (n == lat.length) {
+                        lat = Arrays.copyOf(lat, n * 2);
+                        lon = Arrays.copyOf(lon, n * 2);
+                    }
+                    lat[n] = rs.getDouble(2);
+                    lon[n] = rs.getDouble(3);
+                    n++;
+                }
+            }
+        }
+        if (shapeId != null) {
+            write(writer, shapeId, lat, lon, n);
+        }
+    }
+
+    private void write(PgBinaryWriter writer, String shapeId, double[] lat, double[] lon, int n) throws IOException {
+        for (double tolerance : tolerances) {
+            int[] kept = Polylines.simplify(lat, lon, n, tolerance);
+            writer.startRow(4);
+            writer.writeText(shapeId);
+            writer.writeFloat8(tolerance);
+            writer.writeInt4(kept.length);
+            writer.writeText(Polylines.encode(lat, lon, kept));
+        }
+    }
+}
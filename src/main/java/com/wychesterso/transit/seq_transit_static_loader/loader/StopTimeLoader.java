@@ -1,220 +1,158 @@
 package com.wychesterso.transit.seq_transit_static_loader.loader;
 
-import com.wychesterso.transit.seq_transit_static_loader.time.ServiceClock;
-import com.wychesterso.transit.seq_transit_static_loader.time.ServiceTimeHelper;
-import org.postgresql.PGConnection;
-import org.postgresql.copy.CopyManager;
+import com.wychesterso.transit.seq_transit_static_loader.feed.GtfsFeed;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.CountingInputStream;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
-import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
-
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads stop_times.txt into stop_times, which is partitioned by service_date with one
+ * partition per day of the window (see {@link DatePartitions}). The file is parsed, keyed
+ * and encoded once by {@link StopTimeTransformer} and COPYed into a temporary table split by
+ * day the same way; each day's rows then fill a standalone table that is indexed and attached,
+ * and the partitions of the previous import are detached and dropped in the same transaction.
+ * <p>
+ * In diff mode the window's partitions are created or dropped as needed, and the whole
+ * window is staged and applied through the parent by {@link TableDiff}.
+ */
 @Component
-public class StopTimeLoader {
+public class StopTimeLoader implements GtfsLoader {
 
     private final DataSource dataSource;
+    private final ImportMetrics metrics;
+    private final IndexBuilder indexes;
+    private final DatePartitions partitions;
     private static final Logger log = LoggerFactory.getLogger(StopTimeLoader.class);
 
-    public StopTimeLoader(DataSource dataSource) {
+    private static final List<String> KEY = List.of("service_date", "trip_key", "stop_sequence");
+
+    // the whole window, parsed once; dropped when the loader's transaction ends
+    private static final String WINDOW = "stop_times_window";
+
+    // threads parsing stop_times.txt in parallel
+    @Value("${gtfs.import.copy-workers}")
+    private int copyWorkers;
+
+    public StopTimeLoader(DataSource dataSource, ImportMetrics metrics, IndexBuilder indexes) {
         this.dataSource = dataSource;
+        this.metrics = metrics;
+        this.indexes = indexes;
+        this.partitions = new DatePartitions("stop_times", KEY, indexes, metrics);
     }
 
-    public void load(Path gtfsDir) throws Exception {
+    @Override
+    public Set<String> produces() {
+        return Set.of("stop_times");
+    }
 
-        Path stopTimesFile = gtfsDir.resolve("stop_times.txt");
-        if (!Files.exists(stopTimesFile)) {
-            throw new IllegalStateException("stop_times.txt not found in " + gtfsDir);
-        }
+    @Override
+    public Set<String> dependsOn() {
+        return Set.of("trips", "active_services", "trip_keys", "stop_keys");
+    }
 
-        // filter by current service date
-        ServiceClock clock = ServiceTimeHelper.now();
-        LocalDate serviceDate = clock.serviceDate();
-        String sqlDate = serviceDate.toString();
+    @Override
+    public void load(LoadContext ctx) throws Exception {
+
+        GtfsFeed feed = ctx.feed();
+        if (!feed.contains("stop_times.txt")) {
+            throw new IllegalStateException("stop_times.txt not found in " + feed);
+        }
 
         long start = System.currentTimeMillis();
-        log.info("Starting StopTimeLoader using {}", stopTimesFile);
+        log.info("Starting StopTimeLoader using {}", feed);
 
         try (Connection conn = dataSource.getConnection()) {
 
             conn.setAutoCommit(false);
 
-            PGConnection pg = conn.unwrap(PGConnection.class);
-            CopyManager copy = pg.getCopyAPI();
-
             try (Statement st = conn.createStatement()) {
-                st.execute("SET synchronous_commit = OFF");
+                st.execute("SET LOCAL synchronous_commit = OFF");
+                st.execute("SET LOCAL search_path TO " + ctx.schema());
             }
 
-            // drop indexes to speed up bulk insert
-            try (Statement st = conn.createStatement()) {
-                log.info("Dropping indexes...");
-                st.execute("DROP INDEX IF EXISTS idx_stop_times_stop_id");
-                st.execute("DROP INDEX IF EXISTS idx_stop_times_trip_id");
-                st.execute("DROP INDEX IF EXISTS idx_stop_times_stop_trip");
-                st.execute("DROP INDEX IF EXISTS idx_stop_times_stop_arrival");
-            }
-
-            // create staging table
-            log.info("Creating temp stop_times_raw...");
-            try (Statement st = conn.createStatement()) {
-                st.execute("""
-                    DROP TABLE IF EXISTS stop_times_raw;
-
-                    CREATE TEMP TABLE stop_times_raw (
-                        trip_id TEXT NOT NULL,
-                        arrival_time TEXT,
-                        departure_time TEXT,
-                        stop_id TEXT,
-                        stop_sequence INTEGER NOT NULL,
-                        pickup_type INTEGER,
-                        dropoff_type INTEGER
-                    ) ON COMMIT DROP
-                """);
+            List<LocalDate> dates = DatePartitions.serviceDates(conn);
+            log.info("Loading stop_times for service dates {}", dates);
+
+            if (ctx.diff()) {
+                partitions.retain(conn, dates);
+                String target = TableDiff.stage(conn, "stop_times");
+
+                log.info("Starting COPY {}...", target);
+                ImportMetrics.Timing copyTiming = metrics.start("stop_times", Phase.COPY);
+                try (CountingInputStream in = new CountingInputStream(feed.open("stop_times.txt"))) {
+                    long rows = StopTimeTransformer.copy(conn, in, target, copyWorkers);
+                    log.info("COPY {} finished: {} rows in {} ms",
+                            target, rows, copyTiming.stop(rows, in.bytes()));
+                }
+
+                ImportMetrics.Timing diffTiming = metrics.start("stop_times", Phase.DIFF);
+                diffTiming.stop(TableDiff.apply(conn, "stop_times", KEY), -1);
+            } else {
+                stageWindow(conn, dates);
+
+                log.info("Starting COPY {}...", WINDOW);
+                ImportMetrics.Timing transformTiming = metrics.start("stop_times", Phase.TRANSFORM);
+                try (CountingInputStream in = new CountingInputStream(feed.open("stop_times.txt"))) {
+                    long rows = StopTimeTransformer.copy(conn, in, WINDOW, copyWorkers);
+                    log.info("COPY {} finished: {} rows in {} ms",
+                            WINDOW, rows, transformTiming.stop(rows, in.bytes()));
+                }
+
+                long rows = partitions.reload(conn, dates, StopTimeLoader::copyDay);
+                log.info("Loaded {} stop_times rows over {} days", rows, dates.size());
             }
 
-            // copy raw csv to staging
-            log.info("Starting COPY stop_times_raw...");
-            long copyStart = System.currentTimeMillis();
-
-            try (Reader reader = Files.newBufferedReader(stopTimesFile)) {
-
-                long rows = copy.copyIn("""
-                    COPY stop_times_raw (
-                        trip_id,
-                        arrival_time,
-                        departure_time,
-                        stop_id,
-                        stop_sequence,
-                        pickup_type,
-                        dropoff_type
-                    )
-                    FROM STDIN WITH (FORMAT csv, HEADER true)
-                """, reader);
-
-                log.info("COPY stop_times_raw finished: {} rows in {} ms",
-                        rows, System.currentTimeMillis() - copyStart);
-            }
-
-            // build active services
-            log.info("Building active_services temp table...");
-
-            try (Statement st = conn.createStatement()) {
-
-                st.execute("""
-                    CREATE TEMP TABLE active_services(
-                        service_id TEXT PRIMARY KEY
-                    ) ON COMMIT DROP
-                """);
-
-                // calendar rules
-                st.execute("""
-                    INSERT INTO active_services(service_id)
-                    SELECT service_id
-                    FROM calendar
-                    WHERE
-                        start_date <= DATE '%s'
-                        AND end_date >= DATE '%s'
-                        AND CASE EXTRACT(DOW FROM DATE '%s')
-                            WHEN 0 THEN sunday
-                            WHEN 1 THEN monday
-                            WHEN 2 THEN tuesday
-                            WHEN 3 THEN wednesday
-                            WHEN 4 THEN thursday
-                            WHEN 5 THEN friday
-                            WHEN 6 THEN saturday
-                        END
-                """.formatted(sqlDate, sqlDate, sqlDate));
-
-                // added services
-                st.execute("""
-                    INSERT INTO active_services(service_id)
-                    SELECT service_id
-                    FROM calendar_dates
-                    WHERE date = DATE '%s'
-                    AND exception_type = 1
-                """.formatted(sqlDate));
-
-                // removed services
-                st.execute("""
-                    DELETE FROM active_services
-                    WHERE service_id IN (
-                        SELECT service_id
-                        FROM calendar_dates
-                        WHERE date = DATE '%s'
-                        AND exception_type = 2
-                    )
-                """.formatted(sqlDate));
-            }
-
-            // transform staging to actual
-            log.info("Starting transform + insert into stop_times...");
-            long insertStart = System.currentTimeMillis();
-
-            try (Statement st = conn.createStatement()) {
+            log.info("Committing stop_times...");
+            ImportMetrics.Timing commitTiming = metrics.start("stop_times", Phase.COMMIT);
+            conn.commit();
+            commitTiming.stop();
 
-                st.execute("""
-                    TRUNCATE stop_times;
-
-                    INSERT INTO stop_times (
-                        trip_id,
-                        arrival_time,
-                        departure_time,
-                        stop_id,
-                        stop_sequence,
-                        pickup_type,
-                        dropoff_type
-                    )
-                    SELECT
-                        str.trip_id,
-
-                        split_part(arrival_time, ':', 1)::int * 3600
-                            + split_part(arrival_time, ':', 2)::int * 60
-                            + split_part(arrival_time, ':', 3)::int,
-
-                        split_part(departure_time, ':', 1)::int * 3600
-                            + split_part(departure_time, ':', 2)::int * 60
-                            + split_part(departure_time, ':', 3)::int,
-
-                        str.stop_id,
-                        str.stop_sequence,
-                        str.pickup_type,
-                        str.dropoff_type
-
-                    FROM stop_times_raw str
-                    JOIN trips t USING (trip_id)
-                    JOIN active_services s USING (service_id);
-                """);
+            if (!ctx.diff() && !ctx.live()) {
+                // the shadow parent starts without indexes; building them attaches the partitions' own
+                ImportMetrics.Timing indexTiming = metrics.start("stop_times", Phase.INDEX);
+                indexes.create(ctx.schema(), "stop_times");
+                log.info("Indexes on stop_times attached in {} ms", indexTiming.stop());
             }
 
-            log.info("Insert finished in {} ms", System.currentTimeMillis() - insertStart);
+            log.info("StopTimeLoader finished in {} ms",
+                    System.currentTimeMillis() - start);
+        }
+    }
 
-            // recreate indexes
-            try (Statement st = conn.createStatement()) {
-                log.info("Recreating indexes...");
-                st.execute("""
-                    CREATE INDEX IF NOT EXISTS idx_stop_times_stop_id
-                    ON stop_times (stop_id);
-                    CREATE INDEX IF NOT EXISTS idx_stop_times_trip_id
-                    ON stop_times (trip_id);
-                    CREATE INDEX IF NOT EXISTS idx_stop_times_stop_trip
-                    ON stop_times (stop_id, trip_id);
-                    CREATE INDEX IF NOT EXISTS idx_stop_times_stop_arrival
-                    ON stop_times (stop_id, arrival_time);
-                """);
+    // temporary, so neither WAL nor a file under gtfs.workdir; one partition per day, so each
+    // day's INSERT reads only its own rows
+    private static void stageWindow(Connection conn, List<LocalDate> dates) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TEMP TABLE %s (LIKE stop_times) PARTITION BY RANGE (service_date) ON COMMIT DROP"
+                    .formatted(WINDOW));
+            for (LocalDate date : dates) {
+                st.execute("CREATE TEMP TABLE %s_%s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')"
+                        .formatted(WINDOW, DateTimeFormatter.BASIC_ISO_DATE.format(date), WINDOW,
+                                date, date.plusDays(1)));
             }
+        }
+    }
 
-            log.info("Committing changes...");
-            conn.commit();
-
-            log.info("StopTimeLoader finished in {} ms",
-                    System.currentTimeMillis() - start);
+    private static long copyDay(Connection conn, String target, LocalDate date) throws SQLException {
+        String columns = String.join(", ", StopTimeTransformer.COLUMNS);
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO %s (%s) SELECT %s FROM %s WHERE service_date = ?"
+                .formatted(target, columns, columns, WINDOW))) {
+            ps.setObject(1, date);
+            return ps.executeUpdate();
         }
     }
-}
\ No newline at end of file
+}
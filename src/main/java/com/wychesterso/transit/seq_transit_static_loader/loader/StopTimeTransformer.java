@@ -0,0 +1,482 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.feed.CsvReader;
+import com.wychesterso.transit.seq_transit_static_loader.time.GtfsTimeParser;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns stop_times.txt into binary COPY rows for stop_times: times are parsed to seconds
+ * in Java, trip and stop IDs are replaced by their keys from trip_keys and stop_keys, and
+ * each row is written once per service date its trip runs on, so the table is filled by a
+ * single COPY with no staging table or transform query. Rows of trips outside the window, and
+ * of stop_ids with no stop_keys entry, are counted and skipped.
+ * <p>
+ * The input is cut into line-aligned chunks that are parsed and encoded on worker threads,
+ * while the calling thread appends the encoded chunks to the COPY stream as they complete.
+ * Chunks only break at newlines, so the input must not contain quoted multi-line fields
+ * (true for stop_times.txt). Row order in the table is not preserved.
+ */
+public class StopTimeTransformer {
+
+    private static final Logger log = LoggerFactory.getLogger(StopTimeTransformer.class);
+
+    /**
+     * Target columns, in the order rows are encoded.
+     */
+    public static final List<String> COLUMNS = List.of(
+            "service_date",
+            "trip_key",
+            "arrival_time",
+            "departure_time",
+            "stop_key",
+            "stop_sequence",
+            "pickup_type",
+            "dropoff_type"
+    );
+
+    private static final int CHUNK_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * A trip's key and the service dates (as epoch days) it runs on.
+     */
+    public record TripRun(int key, long[] dates) {}
+
+    private final Map<String, TripRun> trips;
+    private final IdKeys stopKeys;
+    private final int workers;
+    private final int chunkBytes;
+
+    /**
+     * @param trips    the trips running in the window, by trip_id; rows of other trips are dropped
+     * @param stopKeys key of each stop_id; rows of other stops are dropped
+     * @param workers  threads parsing and encoding chunks
+     */
+    public StopTimeTransformer(Map<String, TripRun> trips, Map<String, Integer> stopKeys, int workers) {
+        this(trips, stopKeys, workers, CHUNK_BYTES);
+    }
+
+    // chunkBytes: the size of the input buffer cut into chunks; small in tests to force many chunk boundaries
+    StopTimeTransformer(Map<String, TripRun> trips, Map<String, Integer> stopKeys, int workers, int chunkBytes) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be >= 1, was " + workers);
+        }
+        this.trips = trips;
+        this.stopKeys = new IdKeys(stopKeys);
+        this.workers = workers;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * COPYs {@code in} (stop_times.txt, with its header) into {@code target}, expanding each trip
+     * over the service dates it runs on in {@code active_services}.
+     *
+     * @return rows copied
+     */
+    public static long copy(Connection conn, InputStream in, String target, int workers) throws Exception {
+        Map<String, TripRun> trips = trips(conn);
+        log.info("{} trips run in the service window", trips.size());
+        Map<String, Integer> stopKeys = stopKeys(conn);
+
+        PGCopyOutputStream copyOut = new PGCopyOutputStream(conn.unwrap(PGConnection.class), copySql(target));
+        try {
+            return new StopTimeTransformer(trips, stopKeys, workers).transform(in, copyOut);
+        } finally {
+            if (copyOut.isActive()) {
+                copyOut.cancelCopy();
+            }
+        }
+    }
+
+    private static String copySql(String target) {
+        return "COPY %s (%s) FROM STDIN WITH (FORMAT binary)".formatted(target, String.join(", ", COLUMNS));
+    }
+
+    // key and epoch days of each trip running within the loaded window
+    private static Map<String, TripRun> trips(Connection conn) throws SQLException {
+        Map<String, TripRun> trips = new HashMap<>();
+        try (Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("""
+                    SELECT t.trip_id, k.trip_key, s.service_date
+                    FROM trips t
+                    JOIN trip_keys k USING (trip_id)
+                    JOIN active_services s USING (service_id)
+                    """)) {
+                while (rs.next()) {
+                    int key = rs.getInt(2);
+                    long day = rs.getObject(3, LocalDate.class).toEpochDay();
+                    trips.merge(rs.getString(1), new TripRun(key, new long[]{day}), (a, b) -> {
+                        long[] merged = Arrays.copyOf(a.dates(), a.dates().length + 1);
+                        merged[a.dates().length] = day;
+                        return new TripRun(key, merged);
+                    });
+                }
+            }
+        }
+        return trips;
+    }
+
+    private static Map<String, Integer> stopKeys(Connection conn) throws SQLException {
+        Map<String, Integer> keys = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT stop_id, stop_key FROM stop_keys")) {
+            while (rs.next()) {
+                keys.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Streams {@code in} (stop_times.txt, with its header) as binary COPY data into {@code copyOut},
+     * which must be a {@code COPY stop_times (COLUMNS) FROM STDIN WITH (FORMAT binary)}, and closes it.
+     *
+     * @return rows written
+     */
+    public long transform(InputStream in, OutputStream copyOut) throws Exception {
+        long start = System.currentTimeMillis();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "gtfs-stop-times-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            CompletionService<Segment> done = new ExecutorCompletionService<>(pool);
+            PgBinaryWriter writer = new PgBinaryWriter(copyOut);
+            ChunkReader chunks = new ChunkReader(in, chunkBytes);
+            Fields fields = Fields.of(chunks.header());
+
+            int pending = 0;
+            long skippedTrips = 0;
+            long skippedStops = 0;
+            Chunk chunk;
+            while ((chunk = chunks.next()) != null) {
+                Chunk c = chunk;
+                done.submit(() -> encode(fields, c.data(), c.offset(), c.length()));
+
+                // keep a bounded number of encoded chunks in memory
+                if (++pending >= workers * 2) {
+                    Segment segment = append(writer, done.take());
+                    skippedTrips += segment.skippedTrips();
+                    skippedStops += segment.skippedStops();
+                    pending--;
+                }
+            }
+            for (; pending > 0; pending--) {
+                Segment segment = append(writer, done.take());
+                skippedTrips += segment.skippedTrips();
+                skippedStops += segment.skippedStops();
+            }
+
+            writer.close();
+            long rows = writer.rows();
+
+            log.info("Transformed stop_times.txt: {} MB into {} rows ({} rows of trips outside "
+                            + "the window, {} rows of stops not in stop_keys skipped) on {} threads in {} ms",
+                    chunks.bytes() / (1024 * 1024), rows, skippedTrips, skippedStops, workers,
+                    System.currentTimeMillis() - start);
+            return rows;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Segment append(PgBinaryWriter writer, Future<Segment> f) throws Exception {
+        Segment segment;
+        try {
+            segment = f.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        writer.writeRows(segment.data().array(), 0, segment.data().size(), segment.rows());
+        return segment;
+    }
+
+    private Segment encode(Fields f, byte[] chunk, int offset, int length) throws IOException {
+        Buffer out = new Buffer(length * 2);
+        PgBinaryWriter writer = PgBinaryWriter.rowsOnly(out);
+        long skippedTrips = 0;
+        long skippedStops = 0;
+
+        byte[] lastTrip = null;
+        TripRun run = null;
+
+        try (CsvReader csv = new CsvReader(new ByteArrayInputStream(chunk, offset, length))) {
+            while (csv.next()) {
+                byte[] buf = csv.buffer();
+                int tripStart = csv.start(f.tripId());
+                int tripLength = csv.length(f.tripId());
+
+                // rows come grouped by trip, so the lookup (and its String) is once per trip
+                if (lastTrip == null || !Arrays.equals(lastTrip, 0, lastTrip.length, buf, tripStart, tripStart + tripLength)) {
+                    lastTrip = Arrays.copyOfRange(buf, tripStart, tripStart + tripLength);
+                    run = trips.get(csv.string(f.tripId()));
+                }
+                if (run == null) {
+                    skippedTrips++;
+                    continue;
+                }
+                // a dangling stop_id in a published feed drops its rows, like an unknown trip_id
+                int stopKey = stopKeys.get(buf, csv.start(f.stopId()), csv.length(f.stopId()));
+                if (stopKey < 0) {
+                    skippedStops++;
+                    continue;
+                }
+
+                boolean hasArrival = !csv.isNull(f.arrivalTime());
+                boolean hasDeparture = !csv.isNull(f.departureTime());
+                int arrival = hasArrival
+                        ? GtfsTimeParser.parse(buf, csv.start(f.arrivalTime()), csv.length(f.arrivalTime()))
+                        : 0;
+                int departure = hasDeparture
+                        ? GtfsTimeParser.parse(buf, csv.start(f.departureTime()), csv.length(f.departureTime()))
+                        : 0;
+                int stopSequence = csv.intValue(f.stopSequence());
+
+                for (long date : run.dates()) {
+                    writer.startRow(COLUMNS.size());
+                    writer.writeDate(date);
+                    writer.writeInt4(run.key());
+                    if (hasArrival) {
+                        writer.writeInt4(arrival);
+                    } else {
+                        writer.writeNull();
+                    }
+                    if (hasDeparture) {
+                        writer.writeInt4(departure);
+                    } else {
+                        writer.writeNull();
+                    }
+                    writer.writeInt4(stopKey);
+                    writer.writeInt4(stopSequence);
+                    writeInt(writer, csv, f.pickupType());
+                    writeInt(writer, csv, f.dropOffType());
+                }
+            }
+        }
+
+        writer.close();
+        return new Segment(out, writer.rows(), skippedTrips, skippedStops);
+    }
+
+    private static void writeInt(PgBinaryWriter writer, CsvReader csv, int field) throws IOException {
+        if (csv.isNull(field)) {
+            writer.writeNull();
+        } else {
+            writer.writeInt4(csv.intValue(field));
+        }
+    }
+
+    // cuts the stream after the last newline of each buffer, keeping the header line apart
+    private static final class ChunkReader {
+
+        private final InputStream in;
+        private final int chunkBytes;
+        private byte[] buf;
+        private int filled;
+        private int from;
+        private boolean eof;
+        private long bytes;
+        private byte[] header;
+
+        ChunkReader(InputStream in, int chunkBytes) {
+            this.in = in;
+            this.chunkBytes = chunkBytes;
+            this.buf = new byte[chunkBytes];
+        }
+
+        byte[] header() throws IOException {
+            while (header == null) {
+                int nl = indexOf(buf, (byte) '\n', 0, filled);
+                if (nl < 0 && !eof) {
+                    read();
+                    continue;
+                }
+                if (nl < 0 && filled == 0) {
+                    throw new IllegalStateException("stop_times.txt is empty");
+                }
+                from = nl < 0 ? filled : nl + 1;
+                header = Arrays.copyOf(buf, from);
+            }
+            return header;
+        }
+
+        /**
+         * @return the next run of complete lines, or null at the end of the stream
+         */
+        Chunk next() throws IOException {
+            header();
+            while (true) {
+                int cut = eof ? filled : lastIndexOf(buf, (byte) '\n', from, filled) + 1;
+                if (cut <= from) {
+                    if (eof) {
+                        return null;
+                    }
+                    read();
+                    continue;
+                }
+
+                // the buffer is handed over as-is; the tail moves into a fresh one
+                Chunk chunk = new Chunk(buf, from, cut - from);
+                bytes += cut - from;
+
+                int rest = filled - cut;
+                byte[] next = new byte[Math.max(chunkBytes, rest * 2)];
+                System.arraycopy(buf, cut, next, 0, rest);
+                buf = next;
+                filled = rest;
+                from = 0;
+                return chunk;
+            }
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        private void read() throws IOException {
+            if (filled == buf.length) {
+                // a single line longer than the buffer
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            int n = in.readNBytes(buf, filled, buf.length - filled);
+            filled += n;
+            eof = filled < buf.length;
+        }
+
+        private static int indexOf(byte[] buf, byte b, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (buf[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static int lastIndexOf(byte[] buf, byte b, int from, int to) {
+            for (int i = to - 1; i >= from; i--) {
+                if (buf[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private record Chunk(byte[] data, int offset, int length) {}
+
+    // positions of the stop_times.txt columns, from its header
+    private record Fields(int tripId, int arrivalTime, int departureTime, int stopId,
+                          int stopSequence, int pickupType, int dropOffType) {
+
+        static Fields of(byte[] header) throws IOException {
+            List<String> names;
+            try (CsvReader csv = new CsvReader(new ByteArrayInputStream(header))) {
+                names = csv.readHeader();
+            }
+            Fields f = new Fields(
+                    names.indexOf("trip_id"),
+                    names.indexOf("arrival_time"),
+                    names.indexOf("departure_time"),
+                    names.indexOf("stop_id"),
+                    names.indexOf("stop_sequence"),
+                    names.indexOf("pickup_type"),
+                    names.indexOf("drop_off_type"));
+            if (f.tripId() < 0 || f.stopId() < 0 || f.stopSequence() < 0) {
+                throw new IllegalStateException("stop_times.txt lacks trip_id, stop_id or stop_sequence: " + names);
+            }
+            return f;
+        }
+    }
+
+    // encoded rows of one chunk
+    private record Segment(Buffer data, long rows, long skippedTrips, long skippedStops) {}
+
+    // ID -> key lookups straight from the CSV buffer, without a String per row;
+    // open addressing over the UTF-8 bytes, read-only once built so workers can share it
+    private static final class IdKeys {
+
+        private final byte[][] ids;
+        private final int[] keys;
+        private final int mask;
+
+        IdKeys(Map<String, Integer> keys) {
+            int capacity = Integer.highestOneBit(Math.max(keys.size(), 1) * 2) * 2;
+            this.ids = new byte[capacity][];
+            this.keys = new int[capacity];
+            this.mask = capacity - 1;
+            keys.forEach((id, key) -> {
+                byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+                int slot = hash(bytes, 0, bytes.length) & mask;
+                while (ids[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                ids[slot] = bytes;
+                this.keys[slot] = key;
+            });
+        }
+
+        /**
+         * @return the key of the ID in {@code buf[start, start + length)}, or -1
+         */
+        int get(byte[] buf, int start, int length) {
+            int slot = hash(buf, start, length) & mask;
+            for (byte[] id; (id = ids[slot]) != null; slot = (slot + 1) & mask) {
+                if (Arrays.equals(id, 0, id.length, buf, start, start + length)) {
+                    return keys[slot];
+                }
+            }
+            return -1;
+        }
+
+        private static int hash(byte[] buf, int start, int length) {
+            int h = 1;
+            for (int i = start; i < start + length; i++) {
+                h = 31 * h + buf[i];
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
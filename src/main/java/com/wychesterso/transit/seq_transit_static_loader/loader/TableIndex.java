@@ -0,0 +1,73 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import java.util.List;
+
+/**
+ * A secondary index the loaders build after a bulk load.
+ *
+ * @param name    index name
+ * @param table   indexed table
+ * @param columns key columns, each optionally followed by an operator class
+ *                (e.g. {@code route_short_name text_pattern_ops})
+ * @param include non-key columns stored in the index, so lookups can be answered by an index-only scan
+ */
+public record TableIndex(
+        String name,
+        String table,
+        List<String> columns,
+        List<String> include
+) {
+
+    public TableIndex {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("Index " + name + " has no key columns");
+        }
+        columns = List.copyOf(columns);
+        include = List.copyOf(include);
+    }
+
+    public static TableIndex of(String name, String table, String... columns) {
+        return new TableIndex(name, table, List.of(columns), List.of());
+    }
+
+    /**
+     * The same index, also storing {@code columns}.
+     */
+    public TableIndex including(String... columns) {
+        return new TableIndex(name, table, this.columns, List.of(columns));
+    }
+
+    /**
+     * Key column names, without operator classes.
+     */
+    public List<String> keyColumns() {
+        return columns.stream().map(c -> c.strip().split("\\s+")[0]).toList();
+    }
+
+    /**
+     * Whether every key column uses the default operator class, i.e. the index serves
+     * the same lookups as any other plain btree on those columns.
+     */
+    public boolean plain() {
+        return columns.stream().noneMatch(c -> c.strip().contains(" "));
+    }
+
+    public String createStatement() {
+        return createStatement(name, table);
+    }
+
+    /**
+     * The same index built as {@code name} on {@code table}, e.g. on a partition of this index's table.
+     */
+    public String createStatement(String name, String table) {
+        String sql = "CREATE INDEX IF NOT EXISTS %s ON %s (%s)".formatted(name, table, String.join(", ", columns));
+        if (!include.isEmpty()) {
+            sql += " INCLUDE (" + String.join(", ", include) + ")";
+        }
+        return sql;
+    }
+
+    public String dropStatement() {
+        return "DROP INDEX IF EXISTS " + name;
+    }
+}
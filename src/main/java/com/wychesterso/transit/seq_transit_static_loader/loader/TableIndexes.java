@@ -0,0 +1,91 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The secondary indexes of every GTFS table, in one place. Loaders drop a table's indexes
+ * before a bulk load and rebuild them from here afterwards; primary keys are left alone.
+ * <p>
+ * {@link #redundant} checks the list against the primary keys, so an index the primary key
+ * (or a wider index) already serves is not rebuilt on every import for nothing.
+ */
+public final class TableIndexes {
+
+    public static final List<TableIndex> ALL = List.of(
+            TableIndex.of("idx_routes_short_name", "routes", "route_short_name text_pattern_ops"),
+
+            // stops near a point, by geohash prefix (see Geohash.cover)
+            TableIndex.of("idx_stops_geohash", "stops", "geohash text_pattern_ops")
+                    .including("stop_lat", "stop_lon"),
+
+            TableIndex.of("idx_trips_route_id", "trips", "route_id"),
+            TableIndex.of("idx_trips_shape_id", "trips", "shape_id"),
+
+            // a trip's stops on every date; the primary key leads with service_date
+            TableIndex.of("idx_stop_times_trip_key", "stop_times", "trip_key"),
+            TableIndex.of("idx_stop_times_stop_trip", "stop_times", "stop_key", "trip_key"),
+            // next arrivals at a stop, answered from the index alone
+            TableIndex.of("idx_stop_times_stop_arrival", "stop_times", "stop_key", "arrival_time")
+                    .including("trip_key", "departure_time"),
+
+            // departures at a stop, in the order each day's rows are written
+            TableIndex.of("idx_departures_stop_time", "departures", "stop_id", "departure_time"),
+
+            // the stop lists of a route, optionally in one direction
+            TableIndex.of("idx_route_patterns_route", "route_patterns", "route_id", "direction_id")
+    );
+
+    private TableIndexes() {}
+
+    public static List<TableIndex> of(String table) {
+        return ALL.stream().filter(i -> i.table().equals(table)).toList();
+    }
+
+    /**
+     * Explains each index in {@code indexes} that buys nothing over the primary key or another index:
+     * <ul>
+     *     <li>its key columns are a leading prefix of the primary key</li>
+     *     <li>its key columns start with the whole primary key, so they match at most one row anyway</li>
+     *     <li>its key columns are a leading prefix of (or the same as) another index's key columns</li>
+     * </ul>
+     * Indexes with a non-default operator class serve different lookups and are not compared.
+     *
+     * @param primaryKeys primary key columns by table
+     * @return one message per redundant index, empty if there are none
+     */
+    public static List<String> redundant(List<TableIndex> indexes, Map<String, List<String>> primaryKeys) {
+        List<String> problems = new ArrayList<>();
+        for (TableIndex index : indexes) {
+            if (!index.plain()) {
+                continue;
+            }
+            List<String> key = index.keyColumns();
+            List<String> pk = primaryKeys.getOrDefault(index.table(), List.of());
+
+            if (!pk.isEmpty() && startsWith(pk, key)) {
+                problems.add("%s %s is a prefix of the primary key %s of %s"
+                        .formatted(index.name(), key, pk, index.table()));
+            } else if (!pk.isEmpty() && startsWith(key, pk)) {
+                problems.add("%s %s starts with the primary key %s of %s, which is already unique"
+                        .formatted(index.name(), key, pk, index.table()));
+            } else {
+                for (TableIndex other : indexes) {
+                    if (other != index && other.plain() && other.table().equals(index.table())
+                            && startsWith(other.keyColumns(), key)
+                            && (other.keyColumns().size() > key.size() || indexes.indexOf(other) < indexes.indexOf(index))) {
+                        problems.add("%s %s is a prefix of %s %s"
+                                .formatted(index.name(), key, other.name(), other.keyColumns()));
+                        break;
+                    }
+                }
+            }
+        }
+        return problems;
+    }
+
+    private static boolean startsWith(List<String> list, List<String> prefix) {
+        return list.size() >= prefix.size() && list.subList(0, prefix.size()).equals(prefix);
+    }
+}
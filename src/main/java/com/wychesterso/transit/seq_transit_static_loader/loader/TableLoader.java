@@ -0,0 +1,219 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.feed.GtfsFeed;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.CountingInputStream;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Loads one GTFS file into its table as described by a {@link TableSpec}. Every table goes
+ * through the same pipeline, on one connection and in one transaction:
+ * <ol>
+ *     <li>diff: stage into a temp copy of the table; otherwise drop the declared indexes and TRUNCATE</li>
+ *     <li>COPY the file: binary, text, text through a staging table, or the spec's own copier</li>
+ *     <li>diff: apply the changed rows; direct: rebuild the indexes</li>
+ *     <li>commit; swap: rebuild the indexes, in parallel on separate connections</li>
+ * </ol>
+ * Readers never see an empty, partly loaded or unindexed table. In direct mode that is because
+ * DROP INDEX and TRUNCATE take ACCESS EXCLUSIVE locks held until the commit: readers of the
+ * table block for the whole load rather than seeing the previous contents. Swap and diff
+ * modes leave the live tables readable throughout.
+ */
+public class TableLoader implements GtfsLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(TableLoader.class);
+
+    private final TableSpec spec;
+    private final DataSource dataSource;
+    private final ImportMetrics metrics;
+    private final IndexBuilder indexes;
+
+    public TableLoader(TableSpec spec, DataSource dataSource, ImportMetrics metrics, IndexBuilder indexes) {
+        this.spec = spec;
+        this.dataSource = dataSource;
+        this.metrics = metrics;
+        this.indexes = indexes;
+    }
+
+    public TableSpec spec() {
+        return spec;
+    }
+
+    @Override
+    public Set<String> produces() {
+        return Set.of(spec.table());
+    }
+
+    @Override
+    public Set<String> dependsOn() {
+        return spec.dependsOn();
+    }
+
+    @Override
+    public String name() {
+        return "TableLoader[" + spec.table() + "]";
+    }
+
+    @Override
+    public void load(LoadContext ctx) throws Exception {
+
+        GtfsFeed feed = ctx.feed();
+        String table = spec.table();
+        if (!feed.contains(spec.file())) {
+            throw new IllegalStateException(spec.file() + " not found in " + feed);
+        }
+
+        long start = System.currentTimeMillis();
+        log.info("Starting {} using {}", name(), feed);
+
+        try (Connection conn = dataSource.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            // LOCAL, so the connection goes back to the pool without pointing at this generation
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET LOCAL synchronous_commit = OFF");
+                st.execute("SET LOCAL search_path TO " + ctx.schema());
+            }
+
+            String target = table;
+            if (ctx.diff()) {
+                // apply only the changed rows, keeping indexes live
+                target = TableDiff.stage(conn, table);
+            } else {
+                // drop indexes to speed up bulk insert
+                log.info("Dropping indexes on {}...", table);
+                indexes.drop(conn, table);
+
+                // clear table; in the same transaction, so readers wait for the commit rather than see it empty
+                log.info("Truncating {}...", table);
+                try (Statement st = conn.createStatement()) {
+                    st.execute("TRUNCATE " + table);
+                }
+            }
+
+            if (spec.staged() && spec.copier() == null && !ctx.binaryCopy()) {
+                copyViaStaging(conn, feed, target);
+            } else {
+                copy(conn, ctx, feed, target);
+            }
+
+            if (ctx.diff()) {
+                ImportMetrics.Timing diffTiming = metrics.start(table, Phase.DIFF);
+                diffTiming.stop(TableDiff.apply(conn, table, spec.key()), -1);
+            } else if (ctx.live()) {
+                // readers must not see the new rows before their indexes, so build them in this transaction
+                log.info("Recreating indexes on {}...", table);
+                ImportMetrics.Timing indexTiming = metrics.start(table, Phase.INDEX);
+                indexes.createInTransaction(conn, table);
+                log.info("Indexes on {} recreated in {} ms", table, indexTiming.stop());
+            }
+
+            log.info("Committing {}...", table);
+            ImportMetrics.Timing commitTiming = metrics.start(table, Phase.COMMIT);
+            conn.commit();
+            commitTiming.stop();
+
+            if (!ctx.diff() && !ctx.live()) {
+                // nobody reads the shadow generation, so build the indexes after commit, one connection each
+                log.info("Recreating indexes on {}...", table);
+                ImportMetrics.Timing indexTiming = metrics.start(table, Phase.INDEX);
+                indexes.create(ctx.schema(), table);
+                log.info("Indexes on {} recreated in {} ms", table, indexTiming.stop());
+            }
+
+            log.info("{} finished in {} ms", name(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    // COPY straight into the target
+    private void copy(Connection conn, LoadContext ctx, GtfsFeed feed, String target) throws Exception {
+        log.info("Starting COPY {}...", target);
+        ImportMetrics.Timing copyTiming = metrics.start(spec.table(), Phase.COPY);
+
+        try (CountingInputStream in = new CountingInputStream(feed.open(spec.file()))) {
+
+            long rows;
+            if (spec.copier() != null) {
+                rows = spec.copier().copy(conn, in, target);
+            } else if (ctx.binaryCopy()) {
+                rows = BinaryCopy.copy(conn, in, target, spec.columns());
+            } else {
+                rows = TextCopy.copy(conn.unwrap(PGConnection.class).getCopyAPI(), in, target, spec.columns());
+            }
+
+            log.info("COPY {} finished: {} rows in {} ms",
+                    target, rows, copyTiming.stop(rows, in.bytes()));
+        }
+    }
+
+    // text COPY into a temp table, then cast into the target in SQL
+    private void copyViaStaging(Connection conn, GtfsFeed feed, String target) throws Exception {
+        String raw = spec.table() + "_raw";
+
+        // create staging table
+        log.info("Creating temp {}...", raw);
+        try (Statement st = conn.createStatement()) {
+            st.execute("""
+                DROP TABLE IF EXISTS %s;
+                CREATE TEMP TABLE %s (%s) ON COMMIT DROP
+            """.formatted(raw, raw, spec.columns().stream()
+                    .map(c -> c.name() + " TEXT")
+                    .collect(Collectors.joining(", "))));
+        }
+
+        // copy raw csv to staging
+        log.info("Starting COPY {}...", raw);
+        ImportMetrics.Timing copyTiming = metrics.start(spec.table(), Phase.COPY);
+
+        try (CountingInputStream in = new CountingInputStream(feed.open(spec.file()))) {
+
+            long rows = TextCopy.copy(conn.unwrap(PGConnection.class).getCopyAPI(), in, raw, spec.columns());
+
+            log.info("COPY {} finished: {} rows in {} ms",
+                    raw, rows, copyTiming.stop(rows, in.bytes()));
+        }
+
+        // transform staging to actual
+        log.info("Starting transform + insert into {}...", target);
+        ImportMetrics.Timing transformTiming = metrics.start(spec.table(), Phase.TRANSFORM);
+
+        try (Statement st = conn.createStatement()) {
+            int rows = st.executeUpdate("""
+                INSERT INTO %s (%s)
+                SELECT %s
+                FROM %s
+            """.formatted(
+                    target,
+                    spec.columns().stream().map(BinaryCopy.Column::name).collect(Collectors.joining(", ")),
+                    spec.columns().stream().map(TableLoader::cast).collect(Collectors.joining(", ")),
+                    raw));
+
+            log.info("Insert finished: {} rows in {} ms",
+                    rows, transformTiming.stop(rows, -1));
+        }
+    }
+
+    // the GTFS text of a column as its table type
+    private static String cast(BinaryCopy.Column column) {
+        String name = column.name();
+        return switch (column.type()) {
+            case TEXT -> name;
+            case INT2 -> name + "::smallint";
+            case INT4 -> name + "::integer";
+            case FLOAT8 -> name + "::double precision";
+            case BOOL -> name + " = '1'";
+            case DATE -> "to_date(%s, 'YYYYMMDD')".formatted(name);
+        };
+    }
+}
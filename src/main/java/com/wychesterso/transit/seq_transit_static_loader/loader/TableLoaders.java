@@ -0,0 +1,112 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static com.wychesterso.transit.seq_transit_static_loader.loader.BinaryCopy.bool;
+import static com.wychesterso.transit.seq_transit_static_loader.loader.BinaryCopy.date;
+import static com.wychesterso.transit.seq_transit_static_loader.loader.BinaryCopy.float8;
+import static com.wychesterso.transit.seq_transit_static_loader.loader.BinaryCopy.int2;
+import static com.wychesterso.transit.seq_transit_static_loader.loader.BinaryCopy.int4;
+import static com.wychesterso.transit.seq_transit_static_loader.loader.BinaryCopy.text;
+
+/**
+ * The GTFS files loaded by {@link TableLoader}, one spec per table.
+ * Columns are listed as typed in the table, for binary COPY.
+ * stop_times, loaded into day partitions, has its own {@link StopTimeLoader}.
+ */
+@Configuration
+public class TableLoaders {
+
+    private final DataSource dataSource;
+    private final ImportMetrics metrics;
+    private final IndexBuilder indexes;
+
+    public TableLoaders(DataSource dataSource, ImportMetrics metrics, IndexBuilder indexes) {
+        this.dataSource = dataSource;
+        this.metrics = metrics;
+        this.indexes = indexes;
+    }
+
+    @Bean
+    public GtfsLoader routeLoader() {
+        return loader(TableSpec.of("routes", List.of("route_id"),
+                text("route_id"),
+                text("route_short_name"),
+                text("route_long_name"),
+                text("route_desc"),
+                int4("route_type"),
+                text("route_url"),
+                text("route_color"),
+                text("route_text_color")));
+    }
+
+    @Bean
+    public GtfsLoader stopLoader() {
+        return loader(TableSpec.of("stops", List.of("stop_id"),
+                text("stop_id"),
+                text("stop_code"),
+                text("stop_name"),
+                text("stop_desc"),
+                float8("stop_lat"),
+                float8("stop_lon"),
+                text("zone_id"),
+                text("stop_url"),
+                int4("location_type"),
+                text("parent_station"),
+                text("platform_code")));
+    }
+
+    @Bean
+    public GtfsLoader tripLoader() {
+        return loader(TableSpec.of("trips", List.of("trip_id"),
+                text("route_id"),
+                text("service_id"),
+                text("trip_id"),
+                text("trip_headsign"),
+                int4("direction_id"),
+                text("block_id"),
+                text("shape_id")));
+    }
+
+    @Bean
+    public GtfsLoader shapeLoader() {
+        return loader(TableSpec.of("shapes", List.of("shape_id", "shape_pt_sequence"),
+                text("shape_id"),
+                float8("shape_pt_lat"),
+                float8("shape_pt_lon"),
+                int4("shape_pt_sequence")));
+    }
+
+    // 0/1 flags and YYYYMMDD dates are cast in SQL for text COPY
+    @Bean
+    public GtfsLoader calendarLoader() {
+        return loader(TableSpec.of("calendar", List.of("service_id"),
+                text("service_id"),
+                bool("monday"),
+                bool("tuesday"),
+                bool("wednesday"),
+                bool("thursday"),
+                bool("friday"),
+                bool("saturday"),
+                bool("sunday"),
+                date("start_date"),
+                date("end_date")).viaStaging());
+    }
+
+    @Bean
+    public GtfsLoader calendarDateLoader() {
+        return loader(TableSpec.of("calendar_dates", List.of("service_id", "date"),
+                text("service_id"),
+                date("date"),
+                int2("exception_type")).viaStaging());
+    }
+
+    private GtfsLoader loader(TableSpec spec) {
+        return new TableLoader(spec, dataSource, metrics, indexes);
+    }
+}
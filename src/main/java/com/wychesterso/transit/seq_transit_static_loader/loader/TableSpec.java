@@ -0,0 +1,82 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What {@link TableLoader} needs to know to load one GTFS file into its table.
+ * Secondary indexes are not part of the spec; they come from {@link TableIndexes}.
+ *
+ * @param table     target table
+ * @param file      GTFS file in the feed
+ * @param key       columns identifying a row, for {@link TableDiff}
+ * @param columns   target columns as typed in the table, matched to the CSV by header name
+ * @param staged    for text COPY, load the CSV into an all-text temp table first and cast
+ *                  into the target in SQL, for values PostgreSQL cannot read as the column type
+ * @param dependsOn tables that must be loaded first
+ * @param copier    loads the file itself instead of the column-driven COPY, or null
+ */
+public record TableSpec(
+        String table,
+        String file,
+        List<String> key,
+        List<BinaryCopy.Column> columns,
+        boolean staged,
+        Set<String> dependsOn,
+        Copier copier
+) {
+
+    /**
+     * Custom COPY of a file into {@code target}, the table or its diff stage.
+     */
+    @FunctionalInterface
+    public interface Copier {
+
+        /**
+         * @return rows copied
+         */
+        long copy(Connection conn, InputStream in, String target) throws Exception;
+    }
+
+    public TableSpec {
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Table " + table + " has no key columns");
+        }
+        if (columns.isEmpty() && copier == null) {
+            throw new IllegalArgumentException("Table " + table + " has neither columns nor a copier");
+        }
+        key = List.copyOf(key);
+        columns = List.copyOf(columns);
+        dependsOn = Set.copyOf(dependsOn);
+    }
+
+    /**
+     * A table loaded from {@code <table>.txt} by COPYing {@code columns}.
+     */
+    public static TableSpec of(String table, List<String> key, BinaryCopy.Column... columns) {
+        return new TableSpec(table, table + ".txt", key, List.of(columns), false, Set.of(), null);
+    }
+
+    /**
+     * A table loaded from {@code <table>.txt} by {@code copier}, whatever the COPY mode.
+     */
+    public static TableSpec copied(String table, List<String> key, Copier copier) {
+        return new TableSpec(table, table + ".txt", key, List.of(), false, Set.of(), copier);
+    }
+
+    /**
+     * The same spec, with text COPY going through a staging table.
+     */
+    public TableSpec viaStaging() {
+        return new TableSpec(table, file, key, columns, true, dependsOn, copier);
+    }
+
+    /**
+     * The same spec, loaded after {@code tables}.
+     */
+    public TableSpec after(String... tables) {
+        return new TableSpec(table, file, key, columns, staged, Set.of(tables), copier);
+    }
+}
@@ -0,0 +1,37 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.feed.CsvProjection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * COPYs a GTFS CSV file into a table with text COPY, leaving the casts to PostgreSQL.
+ * <p>
+ * As with {@link BinaryCopy}, columns are matched to the CSV by header name: the file is
+ * projected onto the table's columns with {@link CsvProjection}, so extra, reordered or
+ * missing optional columns in the feed load correctly.
+ */
+public final class TextCopy {
+
+    private TextCopy() {}
+
+    /**
+     * Copies {@code in}, a CSV file with a header row, into {@code table}.
+     *
+     * @return rows copied
+     */
+    public static long copy(CopyManager copy, InputStream in, String table, List<BinaryCopy.Column> columns)
+            throws IOException, SQLException {
+
+        List<String> names = columns.stream().map(BinaryCopy.Column::name).toList();
+        String sql = "COPY %s (%s) FROM STDIN WITH (FORMAT csv, HEADER true)".formatted(
+                table, String.join(", ", names));
+
+        // the caller closes in
+        return copy.copyIn(sql, CsvProjection.project(in, names));
+    }
+}
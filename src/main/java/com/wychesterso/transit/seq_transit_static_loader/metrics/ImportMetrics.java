@@ -0,0 +1,168 @@
+package com.wychesterso.transit.seq_transit_static_loader.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timers and counters for each phase of the import, tagged by table and phase:
+ * <ul>
+ *     <li>{@code gtfs.import.phase} - time spent in the phase</li>
+ *     <li>{@code gtfs.import.rows} / {@code gtfs.import.bytes} - rows written and input bytes read</li>
+ *     <li>{@code gtfs.import.rows.per.second} - throughput of the latest run of the phase</li>
+ *     <li>{@code gtfs.import.loader} - total time per loader</li>
+ * </ul>
+ * Download and extraction are tagged with table {@code feed}. Once an import finishes,
+ * {@link #export()} writes every meter in Prometheus text format to {@code gtfs.metrics.prometheus-file},
+ * for node_exporter's textfile collector to pick up.
+ */
+@Component
+public class ImportMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportMetrics.class);
+
+    /**
+     * Table tag of the download and extract phases.
+     */
+    public static final String FEED = "feed";
+
+    public enum Phase {
+        DOWNLOAD, EXTRACT, COPY, TRANSFORM, DIFF, INDEX, COMMIT;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final MeterRegistry registry;
+
+    // latest rows/sec of each table and phase, read by the gauges
+    private final Map<Tags, AtomicLong> rowsPerSecond = new ConcurrentHashMap<>();
+
+    // Prometheus text file written after each import; empty to disable
+    @Value("${gtfs.metrics.prometheus-file:}")
+    private String prometheusFile = "";
+
+    public ImportMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Starts timing {@code phase} of {@code table}; the result is recorded by {@link Timing#stop}.
+     */
+    public Timing start(String table, Phase phase) {
+        return new Timing(Tags.of("table", table, "phase", phase.tag()), System.nanoTime());
+    }
+
+    /**
+     * Records the total run time of a loader.
+     */
+    public void loader(String loader, long millis) {
+        Timer.builder("gtfs.import.loader")
+                .tag("loader", loader)
+                .register(registry)
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes all meters to the Prometheus text file, if one is configured.
+     */
+    public void export() throws IOException {
+        if (prometheusFile.isBlank()) {
+            return;
+        }
+        PrometheusMeterRegistry prometheus = prometheus(registry);
+        if (prometheus == null) {
+            throw new IllegalStateException("gtfs.metrics.prometheus-file is set but no Prometheus registry is configured");
+        }
+
+        // written aside and moved, so the collector never reads a partial file
+        Path file = Path.of(prometheusFile).toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        Files.writeString(tmp, prometheus.scrape());
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.info("Metrics written to {}", file);
+    }
+
+    // Boot wraps the registries in a composite once there is more than one
+    private static PrometheusMeterRegistry prometheus(MeterRegistry registry) {
+        if (registry instanceof PrometheusMeterRegistry prometheus) {
+            return prometheus;
+        }
+        if (registry instanceof CompositeMeterRegistry composite) {
+            for (MeterRegistry member : composite.getRegistries()) {
+                PrometheusMeterRegistry prometheus = prometheus(member);
+                if (prometheus != null) {
+                    return prometheus;
+                }
+            }
+        }
+        return null;
+    }
+
+    public final class Timing {
+
+        private final Tags tags;
+        private final long startNanos;
+
+        private Timing(Tags tags, long startNanos) {
+            this.tags = tags;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Records a phase that has no meaningful row count.
+         *
+         * @return elapsed milliseconds
+         */
+        public long stop() {
+            return stop(-1, -1);
+        }
+
+        /**
+         * @param rows  rows written, or -1 if not known
+         * @param bytes input bytes read, or -1 if not known
+         * @return elapsed milliseconds
+         */
+        public long stop(long rows, long bytes) {
+            long nanos = System.nanoTime() - startNanos;
+            Timer.builder("gtfs.import.phase").tags(tags).register(registry).record(nanos, TimeUnit.NANOSECONDS);
+
+            if (rows >= 0) {
+                Counter.builder("gtfs.import.rows").tags(tags).register(registry).increment(rows);
+                double perSecond = nanos == 0 ? 0 : rows * 1e9 / nanos;
+                rowsPerSecond.computeIfAbsent(tags, t -> {
+                    AtomicLong bits = new AtomicLong();
+                    Gauge.builder("gtfs.import.rows.per.second", bits, b -> Double.longBitsToDouble(b.get()))
+                            .tags(t)
+                            .register(registry);
+                    return bits;
+                }).set(Double.doubleToLongBits(perSecond));
+            }
+            if (bytes >= 0) {
+                Counter.builder("gtfs.import.bytes").baseUnit("bytes").tags(tags).register(registry).increment(bytes);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.wychesterso.transit.seq_transit_static_loader.time;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses GTFS times ({@code H:MM:SS} or {@code HH:MM:SS}, measured from noon minus 12h of the
+ * service day) into seconds, straight from the bytes of a CSV field.
+ * <p>
+ * Hours past 23 are kept as is, so a trip finishing after midnight reads e.g.
+ * {@code 25:10:00} = 90600 seconds of the same service day.
+ */
+public final class GtfsTimeParser {
+
+    private GtfsTimeParser() {}
+
+    /**
+     * @return seconds since the start of the service day
+     * @throws NumberFormatException if the field is not a GTFS time
+     */
+    public static int parse(byte[] buf, int offset, int length) {
+        int p = offset;
+        int end = offset + length;
+        while (p < end && buf[p] == ' ') {
+            p++;
+        }
+        while (end > p && buf[end - 1] == ' ') {
+            end--;
+        }
+
+        // hours take one or more digits, minutes and seconds exactly two
+        if (end - p < 7) {
+            throw invalid(buf, offset, length);
+        }
+        int colon = end - 6;
+        if (buf[colon] != ':' || buf[end - 3] != ':') {
+            throw invalid(buf, offset, length);
+        }
+
+        int hours = 0;
+        for (; p < colon; p++) {
+            int digit = buf[p] - '0';
+            if (digit < 0 || digit > 9 || hours > 10_000) {
+                throw invalid(buf, offset, length);
+            }
+            hours = hours * 10 + digit;
+        }
+        int minutes = twoDigits(buf, colon + 1, offset, length);
+        int seconds = twoDigits(buf, end - 2, offset, length);
+        if (minutes > 59 || seconds > 59) {
+            throw invalid(buf, offset, length);
+        }
+
+        return hours * 3600 + minutes * 60 + seconds;
+    }
+
+    public static int parse(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        return parse(bytes, 0, bytes.length);
+    }
+
+    private static int twoDigits(byte[] buf, int p, int offset, int length) {
+        int tens = buf[p] - '0';
+        int ones = buf[p + 1] - '0';
+        if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+            throw invalid(buf, offset, length);
+        }
+        return tens * 10 + ones;
+    }
+
+    private static NumberFormatException invalid(byte[] buf, int offset, int length) {
+        return new NumberFormatException("Invalid GTFS time '"
+                + new String(buf, offset, length, StandardCharsets.UTF_8) + "'");
+    }
+}
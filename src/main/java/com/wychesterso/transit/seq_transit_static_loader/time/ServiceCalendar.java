@@ -0,0 +1,251 @@
+package com.wychesterso.transit.seq_transit_static_loader.time;
+
+import com.wychesterso.transit.seq_transit_static_loader.feed.GtfsFeed;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Which services run on which dates, resolved once from calendar.txt and
+ * calendar_dates.txt into one bitset per service: bit {@code i} is set when the
+ * service runs on {@code firstDate + i} days.
+ */
+public class ServiceCalendar {
+
+    private static final DateTimeFormatter GTFS_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final LocalDate firstDate;
+    private final int days;
+    private final Map<String, BitSet> activeDays;
+
+    private ServiceCalendar(LocalDate firstDate, int days, Map<String, BitSet> activeDays) {
+        this.firstDate = firstDate;
+        this.days = days;
+        this.activeDays = activeDays;
+    }
+
+    /**
+     * Resolves the calendar rules and exceptions of a feed.
+     */
+    public static ServiceCalendar read(GtfsFeed feed) throws IOException {
+        List<CSVRecord> weekly = feed.contains("calendar.txt") ? readCsv(feed, "calendar.txt") : List.of();
+        List<CSVRecord> exceptions = feed.contains("calendar_dates.txt") ? readCsv(feed, "calendar_dates.txt") : List.of();
+
+        LocalDate first = null;
+        LocalDate last = null;
+        for (CSVRecord r : weekly) {
+            first = min(first, parseDate(r.get("start_date")));
+            last = max(last, parseDate(r.get("end_date")));
+        }
+        for (CSVRecord r : exceptions) {
+            LocalDate date = parseDate(r.get("date"));
+            first = min(first, date);
+            last = max(last, date);
+        }
+
+        if (first == null) {
+            return new ServiceCalendar(LocalDate.EPOCH, 0, Map.of());
+        }
+
+        int days = (int) ChronoUnit.DAYS.between(first, last) + 1;
+        Map<String, BitSet> active = new LinkedHashMap<>();
+
+        for (CSVRecord r : weekly) {
+            BitSet bits = active.computeIfAbsent(r.get("service_id"), k -> new BitSet(days));
+            boolean[] runsOn = new boolean[7];
+            for (DayOfWeek dow : DayOfWeek.values()) {
+                runsOn[dow.ordinal()] = "1".equals(r.get(dow.name().toLowerCase(Locale.ROOT)).trim());
+            }
+
+            LocalDate end = parseDate(r.get("end_date"));
+            for (LocalDate d = parseDate(r.get("start_date")); !d.isAfter(end); d = d.plusDays(1)) {
+                if (runsOn[d.getDayOfWeek().ordinal()]) {
+                    bits.set((int) ChronoUnit.DAYS.between(first, d));
+                }
+            }
+        }
+
+        for (CSVRecord r : exceptions) {
+            BitSet bits = active.computeIfAbsent(r.get("service_id"), k -> new BitSet(days));
+            int day = (int) ChronoUnit.DAYS.between(first, parseDate(r.get("date")));
+            switch (r.get("exception_type").trim()) {
+                case "1" -> bits.set(day);
+                case "2" -> bits.clear(day);
+                default -> throw new IllegalStateException("Unknown exception_type in calendar_dates.txt: " + r);
+            }
+        }
+
+        return new ServiceCalendar(first, days, active);
+    }
+
+    /**
+     * Reads the calendar persisted in {@code service_activity} back into memory.
+     */
+    public static ServiceCalendar load(Connection conn) throws SQLException {
+        Map<String, LocalDate> starts = new LinkedHashMap<>();
+        Map<String, String> bits = new LinkedHashMap<>();
+
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT service_id, start_date, active_days FROM service_activity")) {
+            while (rs.next()) {
+                starts.put(rs.getString(1), rs.getObject(2, LocalDate.class));
+                bits.put(rs.getString(1), rs.getString(3));
+            }
+        }
+
+        // a service that never runs has no start_date
+        LocalDate first = starts.values().stream()
+                .filter(Objects::nonNull)
+                .min(LocalDate::compareTo)
+                .orElse(LocalDate.EPOCH);
+        int days = 0;
+        Map<String, BitSet> active = new LinkedHashMap<>();
+
+        for (Map.Entry<String, String> e : bits.entrySet()) {
+            if (starts.get(e.getKey()) == null) {
+                active.put(e.getKey(), new BitSet());
+                continue;
+            }
+            int offset = (int) ChronoUnit.DAYS.between(first, starts.get(e.getKey()));
+            String pattern = e.getValue();
+            BitSet set = new BitSet();
+            for (int i = 0; i < pattern.length(); i++) {
+                if (pattern.charAt(i) == '1') {
+                    set.set(offset + i);
+                }
+            }
+            days = Math.max(days, offset + pattern.length());
+            active.put(e.getKey(), set);
+        }
+
+        return new ServiceCalendar(first, days, active);
+    }
+
+    public boolean isActive(String serviceId, LocalDate date) {
+        BitSet bits = activeDays.get(serviceId);
+        int day = dayIndex(date);
+        return bits != null && day >= 0 && day < days && bits.get(day);
+    }
+
+    /**
+     * Services running on {@code date}, sorted by service_id.
+     */
+    public Set<String> activeServices(LocalDate date) {
+        int day = dayIndex(date);
+        Set<String> services = new TreeSet<>();
+        if (day < 0 || day >= days) {
+            return services;
+        }
+        for (Map.Entry<String, BitSet> e : activeDays.entrySet()) {
+            if (e.getValue().get(day)) {
+                services.add(e.getKey());
+            }
+        }
+        return services;
+    }
+
+    public Set<String> serviceIds() {
+        return Collections.unmodifiableSet(activeDays.keySet());
+    }
+
+    /**
+     * First date covered by the feed's calendar.
+     */
+    public LocalDate firstDate() {
+        return firstDate;
+    }
+
+    /**
+     * Last date covered by the feed's calendar.
+     */
+    public LocalDate lastDate() {
+        return firstDate.plusDays(days - 1L);
+    }
+
+    /**
+     * First date {@code serviceId} runs on, or null if it never runs.
+     */
+    public LocalDate firstActiveDate(String serviceId) {
+        BitSet bits = activeDays.get(serviceId);
+        return bits == null || bits.isEmpty() ? null : firstDate.plusDays(bits.nextSetBit(0));
+    }
+
+    /**
+     * Days {@code serviceId} runs on as a '0'/'1' string starting at {@link #firstActiveDate},
+     * i.e. the text form of a PostgreSQL bit string.
+     */
+    public String activeDayBits(String serviceId) {
+        BitSet bits = activeDays.get(serviceId);
+        if (bits == null || bits.isEmpty()) {
+            return "";
+        }
+        int from = bits.nextSetBit(0);
+        int to = bits.length();
+        StringBuilder sb = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            sb.append(bits.get(i) ? '1' : '0');
+        }
+        return sb.toString();
+    }
+
+    private int dayIndex(LocalDate date) {
+        return (int) ChronoUnit.DAYS.between(firstDate, date);
+    }
+
+    private static List<CSVRecord> readCsv(GtfsFeed feed, String fileName) throws IOException {
+        CSVFormat format = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .build();
+
+        try (Reader reader = skipBom(new InputStreamReader(feed.open(fileName), StandardCharsets.UTF_8))) {
+            List<CSVRecord> records = new ArrayList<>();
+            format.parse(reader).forEach(records::add);
+            return records;
+        }
+    }
+
+    private static Reader skipBom(Reader reader) throws IOException {
+        PushbackReader pushback = new PushbackReader(reader);
+        int c = pushback.read();
+        if (c != -1 && c != '\uFEFF') {
+            pushback.unread(c);
+        }
+        return pushback;
+    }
+
+    private static LocalDate parseDate(String value) {
+        return LocalDate.parse(value.trim(), GTFS_DATE);
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a == null || b.isAfter(a) ? b : a;
+    }
+}
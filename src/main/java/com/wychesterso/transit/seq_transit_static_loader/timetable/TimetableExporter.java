@@ -0,0 +1,101 @@
+package com.wychesterso.transit.seq_transit_static_loader.timetable;
+
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
+import com.wychesterso.transit.seq_transit_static_loader.time.ServiceTimeHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * Writes the loaded stop_times to {@code gtfs.timetable.snapshot-file} as a {@link TimetableSnapshot},
+ * which query services map instead of asking the database for the next departures at a stop.
+ */
+@Component
+public class TimetableExporter {
+
+    private final DataSource dataSource;
+    private final ImportMetrics metrics;
+    private static final Logger log = LoggerFactory.getLogger(TimetableExporter.class);
+
+    // empty to disable
+    @Value("${gtfs.timetable.snapshot-file:}")
+    private String snapshotFile = "";
+
+    public TimetableExporter(DataSource dataSource, ImportMetrics metrics) {
+        this.dataSource = dataSource;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Writes the snapshot of the stop_times in {@code schema}, if a snapshot file is configured.
+     */
+    public void export(String schema) throws Exception {
+        if (snapshotFile.isBlank()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        log.info("Starting timetable snapshot export...");
+        ImportMetrics.Timing timing = metrics.start("timetable_snapshot", Phase.TRANSFORM);
+
+        TimetableSnapshotWriter writer;
+        try (Connection conn = dataSource.getConnection()) {
+
+            // a cursor needs a transaction
+            conn.setAutoCommit(false);
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET LOCAL search_path TO " + schema);
+            }
+
+            writer = new TimetableSnapshotWriter(firstServiceDate(conn));
+            try (Statement st = conn.createStatement()) {
+                st.setFetchSize(10_000);
+                try (ResultSet rs = st.executeQuery("""
+                        SELECT stop_id, trip_id, service_date, arrival_time, departure_time
+                        FROM stop_times
+                        JOIN stop_keys USING (stop_key)
+                        JOIN trip_keys USING (trip_key)
+                        """)) {
+                    while (rs.next()) {
+                        writer.add(
+                                rs.getString(1),
+                                rs.getString(2),
+                                rs.getDate(3).toLocalDate(),
+                                rs.getObject(4, Integer.class),
+                                rs.getObject(5, Integer.class));
+                    }
+                }
+            }
+            conn.commit();
+        }
+
+        Path file = Path.of(snapshotFile);
+        writer.write(file);
+        long bytes = Files.size(file);
+        log.info("Timetable snapshot of {} stop events ({} bytes) written to {} in {} ms",
+                writer.events(), bytes, file.toAbsolutePath(), timing.stop(writer.events(), bytes));
+        log.info("Timetable snapshot export finished in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private static LocalDate firstServiceDate(Connection conn) throws Exception {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT min(service_date) FROM stop_times")) {
+            rs.next();
+            Date first = rs.getDate(1);
+            // an empty timetable still gets a valid, empty snapshot
+            return first != null ? first.toLocalDate() : ServiceTimeHelper.now().serviceDate();
+        }
+    }
+}
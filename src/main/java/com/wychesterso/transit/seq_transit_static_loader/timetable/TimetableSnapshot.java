@@ -0,0 +1,238 @@
+package com.wychesterso.transit.seq_transit_static_loader.timetable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only, memory-mapped timetable of the loaded service window, for "next departures at
+ * a stop" without a database round trip. Opening a snapshot maps the file and reads its
+ * header; nothing is parsed or copied onto the heap, so it is ready at once and shared
+ * between processes through the page cache.
+ * <p>
+ * The file is columnar, little-endian:
+ * <pre>
+ * header         magic, version, first service date (epoch day), stop/trip/event counts, string sizes
+ * int[stops + 1] CSR offsets: the events of stop s are [offsets[s], offsets[s + 1])
+ * int[stops + 1] stop ID offsets into the stop strings (stops sorted by UTF-8 bytes)
+ * int[trips + 1] trip ID offsets into the trip strings
+ * int[events]    departure, GTFS seconds of the event's service date, or {@link #NO_TIME}
+ * int[events]    arrival, likewise
+ * int[events]    trip index
+ * short[events]  service date, as days after the first service date
+ * byte[]         stop IDs, then trip IDs, UTF-8
+ * </pre>
+ * A stop's events are sorted by service day * 86400 + departure (arrival for an event without
+ * a departure), so a 25:10:00 departure on one date sorts after a 00:30:00 departure on the next.
+ * Every event has at least one of the two times.
+ */
+public final class TimetableSnapshot {
+
+    static final byte[] MAGIC = {'G', 'T', 'F', 'S', 'T', 'T', 0, 0};
+    // 2: departure is NO_TIME when missing, where 1 repeated the arrival
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = MAGIC.length + 8 * 4;
+    static final int SECONDS_PER_DAY = 86_400;
+    // keeps day * 86400 + time within an int, with the 48h GTFS allows past a service date
+    static final int MAX_DAYS = Integer.MAX_VALUE / SECONDS_PER_DAY - 2;
+    static final int NO_TIME = Integer.MIN_VALUE;
+
+    /**
+     * A trip calling at the stop.
+     *
+     * @param serviceDate      service date the trip runs on
+     * @param departureSeconds departure as GTFS time of {@code serviceDate}, e.g. 90000 for 25:00:00,
+     *                         or null if the trip only arrives (e.g. at its last stop)
+     * @param arrivalSeconds   arrival, likewise, or null
+     */
+    public record Departure(String tripId, LocalDate serviceDate, Integer departureSeconds, Integer arrivalSeconds) {}
+
+    private final LocalDate firstServiceDate;
+    private final int stopCount;
+    private final int tripCount;
+    private final int eventCount;
+
+    private final IntBuffer stopEvents;
+    private final IntBuffer stopNames;
+    private final IntBuffer tripNames;
+    private final IntBuffer departures;
+    private final IntBuffer arrivals;
+    private final IntBuffer trips;
+    private final ShortBuffer days;
+    private final ByteBuffer stopStrings;
+    private final ByteBuffer tripStrings;
+
+    private TimetableSnapshot(MappedByteBuffer map) {
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[MAGIC.length];
+        map.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IllegalStateException("Not a timetable snapshot");
+        }
+        int version = map.getInt(MAGIC.length);
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported timetable snapshot version " + version);
+        }
+        firstServiceDate = LocalDate.ofEpochDay(map.getInt(MAGIC.length + 4));
+        stopCount = map.getInt(MAGIC.length + 8);
+        tripCount = map.getInt(MAGIC.length + 12);
+        eventCount = map.getInt(MAGIC.length + 16);
+        int stopStringBytes = map.getInt(MAGIC.length + 20);
+        int tripStringBytes = map.getInt(MAGIC.length + 24);
+
+        int pos = HEADER_BYTES;
+        stopEvents = ints(map, pos, stopCount + 1);
+        pos += 4 * (stopCount + 1);
+        stopNames = ints(map, pos, stopCount + 1);
+        pos += 4 * (stopCount + 1);
+        tripNames = ints(map, pos, tripCount + 1);
+        pos += 4 * (tripCount + 1);
+        departures = ints(map, pos, eventCount);
+        pos += 4 * eventCount;
+        arrivals = ints(map, pos, eventCount);
+        pos += 4 * eventCount;
+        trips = ints(map, pos, eventCount);
+        pos += 4 * eventCount;
+        days = map.slice(pos, 2 * eventCount).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        pos += 2 * eventCount;
+        stopStrings = map.slice(pos, stopStringBytes);
+        pos += stopStringBytes;
+        tripStrings = map.slice(pos, tripStringBytes);
+    }
+
+    public static TimetableSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping outlives the channel
+            return new TimetableSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public LocalDate firstServiceDate() {
+        return firstServiceDate;
+    }
+
+    public int stops() {
+        return stopCount;
+    }
+
+    public int trips() {
+        return tripCount;
+    }
+
+    public int events() {
+        return eventCount;
+    }
+
+    /**
+     * The next {@code limit} departures from {@code stopId} at or after {@code seconds} (GTFS time)
+     * on {@code serviceDate}, including those of later service dates in the snapshot. Calls without a
+     * departure time are included at their arrival time, with a null {@link Departure#departureSeconds}.
+     */
+    public List<Departure> departures(String stopId, LocalDate serviceDate, int seconds, int limit) {
+        int stop = stop(stopId);
+        if (stop < 0 || limit <= 0) {
+            return List.of();
+        }
+        long day = serviceDate.toEpochDay() - firstServiceDate.toEpochDay();
+        long after = day * SECONDS_PER_DAY + seconds;
+
+        int from = stopEvents.get(stop);
+        int to = stopEvents.get(stop + 1);
+        int e = lowerBound(from, to, after);
+
+        List<Departure> result = new ArrayList<>(Math.min(limit, to - e));
+        for (; e < to && result.size() < limit; e++) {
+            int departure = departures.get(e);
+            int arrival = arrivals.get(e);
+            result.add(new Departure(
+                    tripId(trips.get(e)),
+                    firstServiceDate.plusDays(days.get(e)),
+                    departure == NO_TIME ? null : departure,
+                    arrival == NO_TIME ? null : arrival));
+        }
+        return result;
+    }
+
+    /**
+     * Index of {@code stopId} in the snapshot, or -1.
+     */
+    public int stop(String stopId) {
+        byte[] key = stopId.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = stopCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(stopStrings, stopNames.get(mid), stopNames.get(mid + 1), key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public String stopId(int stop) {
+        return string(stopStrings, stopNames.get(stop), stopNames.get(stop + 1));
+    }
+
+    public String tripId(int trip) {
+        return string(tripStrings, tripNames.get(trip), tripNames.get(trip + 1));
+    }
+
+    // first event in [from, to) departing at or after the given time
+    private int lowerBound(int from, int to, long time) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time(mid) < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private long time(int event) {
+        int departure = departures.get(event);
+        return (long) days.get(event) * SECONDS_PER_DAY + (departure != NO_TIME ? departure : arrivals.get(event));
+    }
+
+    private static IntBuffer ints(ByteBuffer map, int offset, int count) {
+        return map.slice(offset, 4 * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static String string(ByteBuffer strings, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        strings.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // unsigned byte order, as the writer sorted the stops
+    private static int compare(ByteBuffer strings, int from, int to, byte[] key) {
+        int length = to - from;
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Integer.compare(strings.get(from + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+}
@@ -0,0 +1,218 @@
+package com.wychesterso.transit.seq_transit_static_loader.timetable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects stop events and writes them in the {@link TimetableSnapshot} file format.
+ * Events can be added in any order; they are grouped by stop and sorted by time on write.
+ */
+public final class TimetableSnapshotWriter {
+
+    private final LocalDate firstServiceDate;
+
+    private final Map<String, Integer> stops = new HashMap<>();
+    private final Map<String, Integer> trips = new HashMap<>();
+    private String[] stopNames = new String[1024];
+    private String[] tripNames = new String[1024];
+
+    private int events;
+    private int[] stop = new int[1024];
+    private int[] departure = new int[1024];
+    private int[] arrival = new int[1024];
+    private int[] trip = new int[1024];
+    private short[] day = new short[1024];
+
+    /**
+     * @param firstServiceDate service date that event times are counted from
+     */
+    public TimetableSnapshotWriter(LocalDate firstServiceDate) {
+        this.firstServiceDate = firstServiceDate;
+    }
+
+    /**
+     * Adds a trip's call at a stop.
+     *
+     * @param departureSeconds GTFS time of {@code serviceDate} in seconds (may exceed 24h), or null
+     * @param arrivalSeconds   the same for arrival, or null; if both are null the call is ignored
+     */
+    public void add(String stopId, String tripId, LocalDate serviceDate, Integer arrivalSeconds, Integer departureSeconds) {
+        if (departureSeconds == null && arrivalSeconds == null) {
+            return;
+        }
+        long days = serviceDate.toEpochDay() - firstServiceDate.toEpochDay();
+        if (days < 0 || days > TimetableSnapshot.MAX_DAYS) {
+            throw new IllegalArgumentException("Service date " + serviceDate + " outside the snapshot window from "
+                    + firstServiceDate);
+        }
+
+        if (events == stop.length) {
+            int size = events * 2;
+            stop = Arrays.copyOf(stop, size);
+            departure = Arrays.copyOf(departure, size);
+            arrival = Arrays.copyOf(arrival, size);
+            trip = Arrays.copyOf(trip, size);
+            day = Arrays.copyOf(day, size);
+        }
+        stop[events] = intern(stopId, stops, true);
+        trip[events] = intern(tripId, trips, false);
+        departure[events] = departureSeconds == null ? TimetableSnapshot.NO_TIME : departureSeconds;
+        arrival[events] = arrivalSeconds == null ? TimetableSnapshot.NO_TIME : arrivalSeconds;
+        day[events] = (short) days;
+        events++;
+    }
+
+    public int events() {
+        return events;
+    }
+
+    /**
+     * Writes the snapshot to {@code file}, replacing it atomically so readers never map a partial file.
+     */
+    public void write(Path file) throws IOException {
+        int stopCount = stops.size();
+        int tripCount = trips.size();
+
+        // stops are numbered in UTF-8 byte order, so readers can binary search the IDs
+        byte[][] stopBytes = new byte[stopCount][];
+        Integer[] byName = new Integer[stopCount];
+        for (int s = 0; s < stopCount; s++) {
+            stopBytes[s] = stopNames[s].getBytes(StandardCharsets.UTF_8);
+            byName[s] = s;
+        }
+        Arrays.sort(byName, (a, b) -> Arrays.compareUnsigned(stopBytes[a], stopBytes[b]));
+        int[] rank = new int[stopCount];
+        for (int r = 0; r < stopCount; r++) {
+            rank[byName[r]] = r;
+        }
+
+        // CSR offsets: events of stop s are [offsets[s], offsets[s + 1])
+        int[] offsets = new int[stopCount + 1];
+        for (int e = 0; e < events; e++) {
+            offsets[rank[stop[e]] + 1]++;
+        }
+        for (int s = 0; s < stopCount; s++) {
+            offsets[s + 1] += offsets[s];
+        }
+
+        // within a stop, by time from the first service date, the event index in the low bits
+        long[] sorted = new long[events];
+        int[] fill = Arrays.copyOf(offsets, stopCount);
+        for (int e = 0; e < events; e++) {
+            int seconds = departure[e] != TimetableSnapshot.NO_TIME ? departure[e] : arrival[e];
+            long time = (long) day[e] * TimetableSnapshot.SECONDS_PER_DAY + seconds;
+            sorted[fill[rank[stop[e]]]++] = (time << 32) | e;
+        }
+        for (int s = 0; s < stopCount; s++) {
+            Arrays.sort(sorted, offsets[s], offsets[s + 1]);
+        }
+
+        byte[][] tripBytes = new byte[tripCount][];
+        for (int t = 0; t < tripCount; t++) {
+            tripBytes[t] = tripNames[t].getBytes(StandardCharsets.UTF_8);
+        }
+        int stopStringBytes = Arrays.stream(stopBytes).mapToInt(b -> b.length).sum();
+        int tripStringBytes = Arrays.stream(tripBytes).mapToInt(b -> b.length).sum();
+
+        long size = TimetableSnapshot.HEADER_BYTES
+                + 4L * (stopCount + 1) * 2
+                + 4L * (tripCount + 1)
+                + 4L * events * 3
+                + 2L * events
+                + stopStringBytes + tripStringBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Timetable snapshot of " + size + " bytes is too large to map");
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(TimetableSnapshot.MAGIC);
+        buf.putInt(TimetableSnapshot.VERSION);
+        buf.putInt((int) firstServiceDate.toEpochDay());
+        buf.putInt(stopCount);
+        buf.putInt(tripCount);
+        buf.putInt(events);
+        buf.putInt(stopStringBytes);
+        buf.putInt(tripStringBytes);
+        buf.putInt(0); // reserved
+
+        for (int offset : offsets) {
+            buf.putInt(offset);
+        }
+        putStringOffsets(buf, Arrays.asList(byName).stream().map(s -> stopBytes[s]).toList());
+        putStringOffsets(buf, Arrays.asList(tripBytes));
+
+        for (long key : sorted) {
+            buf.putInt(departure[(int) key]);
+        }
+        for (long key : sorted) {
+            buf.putInt(arrival[(int) key]);
+        }
+        for (long key : sorted) {
+            buf.putInt(trip[(int) key]);
+        }
+        for (long key : sorted) {
+            buf.putShort(day[(int) key]);
+        }
+
+        for (Integer s : byName) {
+            buf.put(stopBytes[s]);
+        }
+        for (byte[] b : tripBytes) {
+            buf.put(b);
+        }
+        buf.flip();
+
+        Path target = file.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putStringOffsets(ByteBuffer buf, List<byte[]> strings) {
+        int offset = 0;
+        buf.putInt(offset);
+        for (byte[] s : strings) {
+            offset += s.length;
+            buf.putInt(offset);
+        }
+    }
+
+    private int intern(String id, Map<String, Integer> ids, boolean stop) {
+        Integer existing = ids.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        int next = ids.size();
+        ids.put(id, next);
+        if (stop) {
+            if (next == stopNames.length) {
+                stopNames = Arrays.copyOf(stopNames, next * 2);
+            }
+            stopNames[next] = id;
+        } else {
+            if (next == tripNames.length) {
+                tripNames = Arrays.copyOf(tripNames, next * 2);
+            }
+            tripNames[next] = id;
+        }
+        return next;
+    }
+}
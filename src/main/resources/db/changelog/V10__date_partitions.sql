@@ -0,0 +1,52 @@
+--liquibase formatted sql
+
+-- changeset wychesterso:10
+
+-- one partition per service date, built and attached by the loaders
+-- (see DatePartitions); both tables are rebuilt by every import, so rows can go
+DROP TABLE stop_times;
+
+CREATE TABLE stop_times (
+    service_date DATE NOT NULL,
+    trip_key INTEGER NOT NULL,
+    arrival_time INTEGER,
+    departure_time INTEGER,
+    stop_key INTEGER NOT NULL,
+    stop_sequence INTEGER NOT NULL,
+    pickup_type INTEGER,
+    dropoff_type INTEGER,
+    PRIMARY KEY(service_date, trip_key, stop_sequence)
+) PARTITION BY RANGE (service_date);
+
+CREATE INDEX idx_stop_times_trip_key
+ON stop_times (trip_key);
+
+CREATE INDEX idx_stop_times_stop_trip
+ON stop_times (stop_key, trip_key);
+
+CREATE INDEX idx_stop_times_stop_arrival
+ON stop_times (stop_key, arrival_time) INCLUDE (trip_key, departure_time);
+
+DROP TABLE departures;
+
+CREATE TABLE departures (
+    service_date DATE NOT NULL,
+    stop_id TEXT NOT NULL,
+    departure_time INTEGER NOT NULL,
+    trip_id TEXT NOT NULL,
+    stop_sequence INTEGER NOT NULL,
+    route_id TEXT NOT NULL,
+    route_short_name TEXT,
+    route_color TEXT,
+    route_text_color TEXT,
+    trip_headsign TEXT,
+    direction_id INTEGER,
+    PRIMARY KEY(service_date, trip_id, stop_sequence)
+) PARTITION BY RANGE (service_date);
+
+-- within a day's partition, the order its rows are written in
+CREATE INDEX idx_departures_stop_time
+ON departures (stop_id, departure_time);
+
+-- a previous generation is not partitioned and cannot be rolled back to
+DROP SCHEMA IF EXISTS gtfs_prev CASCADE;
@@ -0,0 +1,28 @@
+--liquibase formatted sql
+
+-- changeset wychesterso:11
+
+-- the distinct ordered stop lists run by the trips of each route and direction
+CREATE TABLE route_patterns (
+    pattern_id TEXT PRIMARY KEY,
+    route_id TEXT NOT NULL,
+    direction_id INTEGER,
+    stop_ids TEXT[] NOT NULL,
+    stop_count INTEGER NOT NULL,
+    trip_count INTEGER NOT NULL
+);
+
+CREATE INDEX idx_route_patterns_route
+ON route_patterns (route_id, direction_id);
+
+-- the routes calling at each stop, from route_patterns
+CREATE TABLE stop_routes (
+    stop_id TEXT NOT NULL,
+    route_id TEXT NOT NULL,
+    route_short_name TEXT,
+    route_color TEXT,
+    route_text_color TEXT,
+    pattern_count INTEGER NOT NULL,
+    trip_count INTEGER NOT NULL,
+    PRIMARY KEY(stop_id, route_id)
+);
@@ -0,0 +1,19 @@
+--liquibase formatted sql
+
+-- changeset wychesterso:3
+
+-- services running on each date of the loaded window
+CREATE TABLE active_services (
+    service_date DATE NOT NULL,
+    service_id TEXT NOT NULL,
+    PRIMARY KEY(service_date, service_id)
+);
+
+-- stop_times holds one copy of each trip per service date it runs on;
+-- it is rebuilt by every import, so existing rows can go
+TRUNCATE stop_times;
+
+ALTER TABLE stop_times ADD COLUMN service_date DATE NOT NULL;
+
+ALTER TABLE stop_times DROP CONSTRAINT stop_times_pkey;
+ALTER TABLE stop_times ADD PRIMARY KEY(service_date, trip_id, stop_sequence);
@@ -0,0 +1,27 @@
+--liquibase formatted sql
+
+-- changeset wychesterso:4
+
+-- one row per service: bit i of active_days is set when the service
+-- runs on start_date + i days (start_date is its first active day)
+CREATE TABLE service_activity (
+    service_id TEXT NOT NULL,
+    start_date DATE,
+    active_days BIT VARYING NOT NULL,
+    PRIMARY KEY(service_id)
+);
+
+-- changeset wychesterso:4-function splitStatements:false
+
+-- whether a service runs on a date, answered from service_activity
+CREATE OR REPLACE FUNCTION service_is_active(p_service_id TEXT, p_date DATE)
+RETURNS BOOLEAN
+LANGUAGE sql STABLE
+AS $$
+    SELECT COALESCE((
+        SELECT p_date - start_date BETWEEN 0 AND length(active_days) - 1
+           AND substring(active_days FROM p_date - start_date + 1 FOR 1) = B'1'
+        FROM service_activity
+        WHERE service_id = p_service_id
+    ), false)
+$$;
@@ -0,0 +1,16 @@
+--liquibase formatted sql
+
+-- changeset wychesterso:5
+
+-- served by the primary keys: trips (trip_id), shapes (shape_id, shape_pt_sequence)
+DROP INDEX IF EXISTS idx_trips_trip_id;
+DROP INDEX IF EXISTS idx_trips_trip_route;
+DROP INDEX IF EXISTS idx_shapes_shape_id;
+
+-- served by idx_stop_times_stop_trip / idx_stop_times_stop_arrival
+DROP INDEX IF EXISTS idx_stop_times_stop_id;
+
+-- next arrivals at a stop, answered from the index alone
+DROP INDEX IF EXISTS idx_stop_times_stop_arrival;
+CREATE INDEX idx_stop_times_stop_arrival
+ON stop_times (stop_id, arrival_time) INCLUDE (trip_id, departure_time);
@@ -0,0 +1,15 @@
+--liquibase formatted sql
+
+-- changeset wychesterso:6
+
+-- one row per shape and simplification tolerance, so a map draws a shape
+-- from a single row instead of scanning its points in shapes
+CREATE TABLE shape_geometries (
+    shape_id TEXT NOT NULL,
+    -- Douglas-Peucker tolerance in metres; 0 keeps every point
+    tolerance_m DOUBLE PRECISION NOT NULL,
+    point_count INTEGER NOT NULL,
+    -- encoded polyline, precision 5
+    polyline TEXT NOT NULL,
+    PRIMARY KEY(shape_id, tolerance_m)
+);
@@ -0,0 +1,70 @@
+--liquibase formatted sql
+
+-- changeset wychesterso:7-function splitStatements:false
+
+-- standard base32 geohash of a point, matching Geohash.encode in the loader
+CREATE OR REPLACE FUNCTION geohash_encode(p_lat DOUBLE PRECISION, p_lon DOUBLE PRECISION, p_precision INTEGER)
+RETURNS TEXT
+LANGUAGE plpgsql IMMUTABLE STRICT PARALLEL SAFE
+AS $$
+DECLARE
+    base32 CONSTANT TEXT := '0123456789bcdefghjkmnpqrstuvwxyz';
+    lat_lo DOUBLE PRECISION := -90;
+    lat_hi DOUBLE PRECISION := 90;
+    lon_lo DOUBLE PRECISION := -180;
+    lon_hi DOUBLE PRECISION := 180;
+    mid DOUBLE PRECISION;
+    -- bits alternate, starting with longitude
+    lon_bit BOOLEAN := true;
+    bits INTEGER := 0;
+    ch INTEGER := 0;
+    hash TEXT := '';
+BEGIN
+    WHILE length(hash) < p_precision LOOP
+        IF lon_bit THEN
+            mid := (lon_lo + lon_hi) / 2;
+            IF p_lon >= mid THEN
+                ch := ch * 2 + 1;
+                lon_lo := mid;
+            ELSE
+                ch := ch * 2;
+                lon_hi := mid;
+            END IF;
+        ELSE
+            mid := (lat_lo + lat_hi) / 2;
+            IF p_lat >= mid THEN
+                ch := ch * 2 + 1;
+                lat_lo := mid;
+            ELSE
+                ch := ch * 2;
+                lat_hi := mid;
+            END IF;
+        END IF;
+        lon_bit := NOT lon_bit;
+        bits := bits + 1;
+        IF bits = 5 THEN
+            hash := hash || substr(base32, ch + 1, 1);
+            bits := 0;
+            ch := 0;
+        END IF;
+    END LOOP;
+    RETURN hash;
+END
+$$;
+
+-- changeset wychesterso:7
+
+-- 9 characters is a cell of about 5 x 5 m; stops near a point share a prefix,
+-- so "stops near me" is a prefix scan over a few cells instead of a lat/lon range
+ALTER TABLE stops
+ADD COLUMN geohash TEXT GENERATED ALWAYS AS (geohash_encode(stop_lat, stop_lon, 9)) STORED;
+
+-- replaced by idx_stops_geohash, which the loader builds
+DROP INDEX IF EXISTS idx_stops_lat_lon;
+
+-- changeset wychesterso:7-index
+
+-- a separate changeset, so databases that already ran wychesterso:7 get the index too;
+-- IF NOT EXISTS, as an import since then may have built it
+CREATE INDEX IF NOT EXISTS idx_stops_geohash
+ON stops (geohash text_pattern_ops) INCLUDE (stop_lat, stop_lon);
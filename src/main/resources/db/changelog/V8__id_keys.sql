@@ -0,0 +1,40 @@
+--liquibase formatted sql
+
+-- changeset wychesterso:8
+
+-- integer surrogates for the IDs repeated on every stop_times row; an ID gets
+-- a key the first time it is loaded and keeps it in every later import
+CREATE TABLE trip_keys (
+    trip_key INTEGER NOT NULL,
+    trip_id TEXT NOT NULL UNIQUE,
+    PRIMARY KEY(trip_key)
+);
+
+CREATE TABLE stop_keys (
+    stop_key INTEGER NOT NULL,
+    stop_id TEXT NOT NULL UNIQUE,
+    PRIMARY KEY(stop_key)
+);
+
+-- stop_times is rebuilt by every import, so existing rows can go;
+-- its indexes go with the columns they cover
+TRUNCATE stop_times;
+
+ALTER TABLE stop_times DROP CONSTRAINT stop_times_pkey;
+ALTER TABLE stop_times DROP COLUMN trip_id;
+ALTER TABLE stop_times DROP COLUMN stop_id;
+ALTER TABLE stop_times ADD COLUMN trip_key INTEGER NOT NULL;
+ALTER TABLE stop_times ADD COLUMN stop_key INTEGER NOT NULL;
+ALTER TABLE stop_times ADD PRIMARY KEY(service_date, trip_key, stop_sequence);
+
+CREATE INDEX idx_stop_times_trip_key
+ON stop_times (trip_key);
+
+CREATE INDEX idx_stop_times_stop_trip
+ON stop_times (stop_key, trip_key);
+
+CREATE INDEX idx_stop_times_stop_arrival
+ON stop_times (stop_key, arrival_time) INCLUDE (trip_key, departure_time);
+
+-- a previous generation still has text IDs and cannot be rolled back to
+DROP SCHEMA IF EXISTS gtfs_prev CASCADE;
@@ -0,0 +1,24 @@
+--liquibase formatted sql
+
+-- changeset wychesterso:9
+
+-- stop_times joined to trips and routes, one row per boardable departure,
+-- written in (service_date, stop_id, departure_time) order so the departures
+-- at a stop are read from a few adjacent pages
+CREATE TABLE departures (
+    service_date DATE NOT NULL,
+    stop_id TEXT NOT NULL,
+    departure_time INTEGER NOT NULL,
+    trip_id TEXT NOT NULL,
+    stop_sequence INTEGER NOT NULL,
+    route_id TEXT NOT NULL,
+    route_short_name TEXT,
+    route_color TEXT,
+    route_text_color TEXT,
+    trip_headsign TEXT,
+    direction_id INTEGER,
+    PRIMARY KEY(service_date, trip_id, stop_sequence)
+);
+
+CREATE INDEX idx_departures_stop_time
+ON departures (service_date, stop_id, departure_time);
@@ -0,0 +1,87 @@
+package com.wychesterso.transit.seq_transit_static_loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.loader.IndexBuilder;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A throwaway PostgreSQL for tests that need a database, started once per test JVM from
+ * embedded binaries (no Docker) and migrated with the application's Liquibase changelog.
+ * PostgreSQL refuses to run as root, so tests using it are skipped there.
+ */
+public final class TestDatabase {
+
+    private static EmbeddedPostgres postgres;
+
+    private TestDatabase() {}
+
+    public static synchronized DataSource dataSource() throws Exception {
+        Assumptions.assumeFalse("root".equals(System.getProperty("user.name")),
+                "PostgreSQL refuses to run as root");
+
+        if (postgres == null) {
+            postgres = EmbeddedPostgres.builder()
+                    .setPGStartupWait(Duration.ofSeconds(60))
+                    .start();
+
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(postgres.getPostgresDatabase());
+            liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.xml");
+            liquibase.setResourceLoader(new DefaultResourceLoader());
+            liquibase.afterPropertiesSet();
+
+            EmbeddedPostgres started = postgres;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    started.close();
+                } catch (Exception e) {
+                    // the JVM is exiting anyway
+                }
+            }));
+        }
+        return postgres.getPostgresDatabase();
+    }
+
+    /**
+     * An {@link IndexBuilder} with the settings Spring would otherwise inject, sized for a test database.
+     */
+    public static IndexBuilder indexBuilder(DataSource dataSource) {
+        IndexBuilder indexes = new IndexBuilder(dataSource);
+        ReflectionTestUtils.setField(indexes, "parallelism", 1);
+        ReflectionTestUtils.setField(indexes, "maintenanceWorkMem", "64MB");
+        ReflectionTestUtils.setField(indexes, "parallelWorkers", 0);
+        return indexes;
+    }
+
+    /**
+     * The rows of {@code sql}, each as its columns joined by {@code " | "}.
+     */
+    public static List<String> rows(DataSource dataSource, String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                List<String> values = new ArrayList<>();
+                for (int c = 1; c <= columns; c++) {
+                    values.add(rs.getString(c));
+                }
+                rows.add(String.join(" | ", values));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,47 @@
+package com.wychesterso.transit.seq_transit_static_loader.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvProjectionTest {
+
+    private static final List<String> STOP_COLUMNS = List.of("stop_id", "stop_name", "stop_lat", "stop_lon");
+
+    @Test
+    void passesMatchingFilesThroughUntouched() throws Exception {
+        String file = "\uFEFFstop_id,stop_name,stop_lat,stop_lon\r\n"
+                + "S1,\"Roma St, platform 1\",-27.4,153.0\r\n";
+
+        assertEquals(file, project(file, STOP_COLUMNS));
+    }
+
+    @Test
+    void reordersKnownColumnsDropsUnknownOnesAndNullsMissingOnes() throws Exception {
+        String file = "stop_lon,wheelchair_boarding,stop_id,stop_name,stop_timezone\n"
+                + "153.0,1,S1,\"Roma St, \"\"platform\"\" 1\",Australia/Brisbane\n"
+                + "153.1,,S2,\"\",\n"
+                + "\n"
+                + "153.2,0,S3,\"two\nlines\",";
+
+        assertEquals("stop_id,stop_name,stop_lat,stop_lon\n"
+                        + "S1,\"Roma St, \"\"platform\"\" 1\",,153.0\n"
+                        // a quoted empty string stays an empty string, not NULL
+                        + "S2,\"\",,153.1\n"
+                        + "S3,\"two\nlines\",,153.2\n",
+                project(file, STOP_COLUMNS));
+    }
+
+    private static String project(String file, List<String> columns) throws IOException {
+        try (InputStream in = CsvProjection.project(
+                new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)), columns)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.wychesterso.transit.seq_transit_static_loader.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvReaderTest {
+
+    @Test
+    void readsHeaderAndTypedFields() throws Exception {
+        CsvReader csv = reader("\uFEFFstop_id,stop_lat,stop_lon,location_type,date\r\n"
+                + "S1,-27.4698,153.0251,1,20261018\r\n"
+                + "S2,0.000123, -0.5 ,,20270101");
+
+        assertEquals(List.of("stop_id", "stop_lat", "stop_lon", "location_type", "date"), csv.readHeader());
+
+        assertTrue(csv.next());
+        assertEquals("S1", csv.string(0));
+        assertEquals(-27.4698, csv.doubleValue(1));
+        assertEquals(153.0251, csv.doubleValue(2));
+        assertEquals(1, csv.intValue(3));
+        assertEquals(LocalDate.of(2026, 10, 18).toEpochDay(), csv.dateValue(4));
+
+        assertTrue(csv.next());
+        assertEquals(0.000123, csv.doubleValue(1));
+        assertEquals(-0.5, csv.doubleValue(2));
+        assertTrue(csv.isNull(3));
+        assertFalse(csv.next());
+    }
+
+    @Test
+    void handlesQuotedFields() throws Exception {
+        CsvReader csv = reader("a,b,c\n\"say \"\"hi\"\"\",\"x,\ny\",\"\"\n\n");
+
+        csv.readHeader();
+        assertTrue(csv.next());
+        assertEquals("say \"hi\"", csv.string(0));
+        assertEquals("x,\ny", csv.string(1));
+        assertFalse(csv.isNull(2));
+        assertEquals("", csv.string(2));
+        assertTrue(csv.isNull(3));
+        assertFalse(csv.next());
+    }
+
+    @Test
+    void readsRecordsSpanningBufferRefills() throws Exception {
+        StringBuilder sb = new StringBuilder("id,name\n");
+        String longName = "n".repeat(200_000);
+        for (int i = 0; i < 50_000; i++) {
+            sb.append(i).append(',').append(i == 25_000 ? longName : "stop " + i).append('\n');
+        }
+
+        CsvReader csv = reader(sb.toString());
+        csv.readHeader();
+        int rows = 0;
+        while (csv.next()) {
+            assertEquals(rows, csv.intValue(0));
+            assertEquals(rows == 25_000 ? longName : "stop " + rows, csv.string(1));
+            rows++;
+        }
+        assertEquals(50_000, rows);
+    }
+
+    @Test
+    void rejectsMalformedInput() throws Exception {
+        CsvReader csv = reader("n\n12a\n");
+        csv.readHeader();
+        csv.next();
+
+        assertThrows(NumberFormatException.class, () -> csv.intValue(0));
+
+        CsvReader unterminated = reader("n\n\"abc\n");
+        unterminated.readHeader();
+        assertThrows(IllegalStateException.class, unterminated::next);
+    }
+
+    private static CsvReader reader(String content) throws IOException {
+        // small reads, so records regularly straddle the end of the buffer
+        InputStream in = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+        return new CsvReader(in);
+    }
+}
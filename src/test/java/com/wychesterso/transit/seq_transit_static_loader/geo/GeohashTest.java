@@ -0,0 +1,42 @@
+package com.wychesterso.transit.seq_transit_static_loader.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeohashTest {
+
+    @Test
+    void encodesTheReferenceExample() {
+        assertEquals("ezs42", Geohash.encode(42.6, -5.6, 5));
+        assertEquals("ezs42e44yx96", Geohash.encode(42.6, -5.6, 12));
+    }
+
+    @Test
+    void coverContainsEveryPointWithinTheRadius() {
+        Random random = new Random(42);
+        for (double radius : new double[]{50, 400, 3000}) {
+            double lat = -27.4698;
+            double lon = 153.0251;
+            List<String> cells = Geohash.cover(lat, lon, radius);
+            assertTrue(cells.size() <= 9, cells.toString());
+
+            for (int i = 0; i < 2000; i++) {
+                // a point up to radius metres away, in a random direction
+                double bearing = random.nextDouble() * 2 * Math.PI;
+                double distance = random.nextDouble() * radius;
+                double pLat = lat + Math.toDegrees(distance * Math.cos(bearing) / 6_371_008.8);
+                double pLon = lon + Math.toDegrees(distance * Math.sin(bearing)
+                        / (6_371_008.8 * Math.cos(Math.toRadians(lat))));
+
+                String hash = Geohash.encode(pLat, pLon, 12);
+                assertTrue(cells.stream().anyMatch(hash::startsWith),
+                        hash + " at " + Math.round(distance) + " m not in " + cells);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.wychesterso.transit.seq_transit_static_loader.geo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PolylinesTest {
+
+    @Test
+    void encodesTheReferenceExample() {
+        double[] lat = {38.5, 40.7, 43.252};
+        double[] lon = {-120.2, -120.95, -126.453};
+
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", Polylines.encode(lat, lon, new int[]{0, 1, 2}));
+    }
+
+    @Test
+    void dropsPointsWithinTheToleranceOfTheSimplifiedLine() {
+        // east along a street in Brisbane; 0.00002 deg of latitude is about 2.2 m
+        double[] lat = {-27.47, -27.47002, -27.47, -27.4705, -27.47, -27.47};
+        double[] lon = {153.02, 153.021, 153.022, 153.023, 153.024, 153.025};
+
+        // the 2 m wobble goes, the 55 m detour stays
+        assertArrayEquals(new int[]{0, 2, 3, 4, 5}, Polylines.simplify(lat, lon, 6, 5));
+        assertArrayEquals(new int[]{0, 3, 5}, Polylines.simplify(lat, lon, 6, 40));
+        assertArrayEquals(new int[]{0, 5}, Polylines.simplify(lat, lon, 6, 100));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5}, Polylines.simplify(lat, lon, 6, 0));
+    }
+}
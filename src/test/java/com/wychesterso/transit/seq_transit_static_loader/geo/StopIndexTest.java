@@ -0,0 +1,50 @@
+package com.wychesterso.transit.seq_transit_static_loader.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StopIndexTest {
+
+    @Test
+    void findsTheSameStopsAsAFullScan() throws Exception {
+        Random random = new Random(7);
+        double[][] stops = new double[3000][];
+        StringBuilder csv = new StringBuilder("stop_id,stop_name,stop_lat,stop_lon\n");
+        for (int i = 0; i < stops.length; i++) {
+            stops[i] = new double[]{-27.2 - random.nextDouble() * 0.8, 152.7 + random.nextDouble() * 0.8};
+            csv.append('S').append(i).append(",Stop ").append(i).append(',')
+                    .append(stops[i][0]).append(',').append(stops[i][1]).append('\n');
+        }
+        // a station entrance without coordinates is skipped
+        csv.append("G1,Generic node,,\n");
+
+        StopIndex index = StopIndex.read(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(stops.length, index.size());
+
+        for (int q = 0; q < 50; q++) {
+            double lat = -27.2 - random.nextDouble() * 0.8;
+            double lon = 152.7 + random.nextDouble() * 0.8;
+
+            List<String> byDistance = IntStream.range(0, stops.length).boxed()
+                    .sorted(Comparator.comparingDouble(i -> StopIndex.distanceM(lat, lon, stops[i][0], stops[i][1])))
+                    .map(i -> "S" + i)
+                    .toList();
+            long inRadius = IntStream.range(0, stops.length)
+                    .filter(i -> StopIndex.distanceM(lat, lon, stops[i][0], stops[i][1]) <= 1500)
+                    .count();
+
+            assertEquals(byDistance.subList(0, (int) inRadius),
+                    index.within(lat, lon, 1500).stream().map(StopIndex.Nearby::stopId).toList());
+            assertEquals(byDistance.subList(0, 5),
+                    index.nearest(lat, lon, 5).stream().map(StopIndex.Nearby::stopId).toList());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.wychesterso.transit.seq_transit_static_loader.importer;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.wychesterso.transit.seq_transit_static_loader.importer.GtfsZipDownloader.GtfsDownload;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GtfsZipDownloaderTest {
+
+    private static final String LAST_MODIFIED = "Wed, 14 Oct 2026 03:00:00 GMT";
+
+    @TempDir
+    Path workDir;
+
+    private HttpServer server;
+    private String url;
+    private final List<Headers> requests = new CopyOnWriteArrayList<>();
+
+    private volatile byte[] body;
+    private volatile String etag;
+    private volatile boolean honourConditionals = true;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        body = randomBytes(200_000, 1);
+        etag = "\"v1\"";
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/SEQ_GTFS.zip", this::handle);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/SEQ_GTFS.zip";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void downloadsThenSkipsUnchangedFeedWith304() throws Exception {
+        GtfsZipDownloader downloader = new GtfsZipDownloader();
+
+        GtfsDownload first = downloader.download(url, workDir);
+        assertTrue(first.changed());
+        assertArrayEquals(body, Files.readAllBytes(first.zip()));
+
+        GtfsDownload second = downloader.download(url, workDir);
+        assertFalse(second.changed());
+        assertEquals(first.sha256(), second.sha256());
+        assertEquals("\"v1\"", requests.get(1).getFirst("If-None-Match"));
+        assertEquals(LAST_MODIFIED, requests.get(1).getFirst("If-Modified-Since"));
+    }
+
+    @Test
+    void detectsUnchangedContentByHashWhenServerIgnoresConditionals() throws Exception {
+        honourConditionals = false;
+        GtfsZipDownloader downloader = new GtfsZipDownloader();
+
+        GtfsDownload first = downloader.download(url, workDir);
+        GtfsDownload second = downloader.download(url, workDir);
+        assertFalse(second.changed());
+        assertEquals(first.sha256(), second.sha256());
+
+        body = randomBytes(200_000, 2);
+        assertTrue(downloader.download(url, workDir).changed());
+    }
+
+    @Test
+    void resumesInterruptedDownloadWithRange() throws Exception {
+        int cut = 75_000;
+        Files.write(workDir.resolve("gtfs.zip.part"), Arrays.copyOf(body, cut));
+        Files.writeString(workDir.resolve("gtfs.zip.part.meta"), "etag=\"v1\"\n");
+
+        GtfsDownload download = new GtfsZipDownloader().download(url, workDir);
+
+        assertEquals("bytes=" + cut + "-", requests.get(0).getFirst("Range"));
+        assertEquals("\"v1\"", requests.get(0).getFirst("If-Range"));
+        assertArrayEquals(body, Files.readAllBytes(download.zip()));
+        assertFalse(Files.exists(workDir.resolve("gtfs.zip.part")));
+    }
+
+    @Test
+    void restartsWhenFeedChangedSinceInterruptedDownload() throws Exception {
+        Files.write(workDir.resolve("gtfs.zip.part"), Arrays.copyOf(body, 75_000));
+        Files.writeString(workDir.resolve("gtfs.zip.part.meta"), "etag=\"v0\"\n");
+
+        GtfsDownload download = new GtfsZipDownloader().download(url, workDir);
+
+        assertArrayEquals(body, Files.readAllBytes(download.zip()));
+        assertNull(requests.get(0).getFirst("If-None-Match"));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Headers req = exchange.getRequestHeaders();
+        requests.add(req);
+
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+
+        if (honourConditionals && etag.equals(req.getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        String range = req.getFirst("Range");
+        if (range != null && etag.equals(req.getFirst("If-Range"))) {
+            int from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes " + from + "-" + (body.length - 1) + "/" + body.length);
+            send(exchange, 206, Arrays.copyOfRange(body, from, body.length));
+            return;
+        }
+
+        send(exchange, 200, body);
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] bytes) throws IOException {
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,96 @@
+package com.wychesterso.transit.seq_transit_static_loader.importer;
+
+import com.wychesterso.transit.seq_transit_static_loader.loader.GtfsLoader;
+import com.wychesterso.transit.seq_transit_static_loader.loader.LoadContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoaderSchedulerTest {
+
+    @Test
+    void runsDependentsAfterTheirDependencies() throws Exception {
+        TestLoader trips = new TestLoader("trips");
+        TestLoader calendar = new TestLoader("calendar");
+        TestLoader stopTimes = new TestLoader("stop_times", "trips", "calendar");
+        List<String> finished = new CopyOnWriteArrayList<>();
+
+        new LoaderScheduler(List.of(stopTimes, trips, calendar))
+                .run(loader -> finished.add(loader.name()), 2);
+
+        assertEquals(3, finished.size());
+        assertEquals("stop_times", finished.get(2));
+    }
+
+    @Test
+    void runsIndependentLoadersConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        TestLoader routes = new TestLoader("routes");
+        TestLoader stops = new TestLoader("stops");
+
+        new LoaderScheduler(List.of(routes, stops)).run(loader -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS), "loaders did not overlap");
+        }, 2);
+    }
+
+    @Test
+    void propagatesFailureAndSkipsDependents() {
+        TestLoader trips = new TestLoader("trips");
+        TestLoader stopTimes = new TestLoader("stop_times", "trips");
+        Set<String> ran = ConcurrentHashMap.newKeySet();
+        IllegalStateException boom = new IllegalStateException("boom");
+
+        Exception thrown = assertThrows(IllegalStateException.class, () ->
+                new LoaderScheduler(List.of(trips, stopTimes)).run(loader -> {
+                    ran.add(loader.name());
+                    if (loader == trips) {
+                        throw boom;
+                    }
+                }, 2));
+
+        assertSame(boom, thrown);
+        assertFalse(ran.contains("stop_times"));
+    }
+
+    @Test
+    void rejectsMissingDependenciesAndCycles() {
+        assertThrows(IllegalStateException.class, () ->
+                new LoaderScheduler(List.of(new TestLoader("stop_times", "trips"))));
+
+        assertThrows(IllegalStateException.class, () ->
+                new LoaderScheduler(List.of(new TestLoader("a", "b"), new TestLoader("b", "a"))));
+    }
+
+    private record TestLoader(String table, Set<String> dependsOn) implements GtfsLoader {
+
+        TestLoader(String table, String... dependsOn) {
+            this(table, Set.of(dependsOn));
+        }
+
+        @Override
+        public Set<String> produces() {
+            return Set.of(table);
+        }
+
+        @Override
+        public String name() {
+            return table;
+        }
+
+        @Override
+        public void load(LoadContext ctx) {
+        }
+    }
+}
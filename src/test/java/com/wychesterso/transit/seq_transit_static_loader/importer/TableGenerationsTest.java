@@ -0,0 +1,84 @@
+package com.wychesterso.transit.seq_transit_static_loader.importer;
+
+import com.wychesterso.transit.seq_transit_static_loader.TestDatabase;
+import com.wychesterso.transit.seq_transit_static_loader.loader.DatePartitions;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TableGenerationsTest {
+
+    private static final List<String> TABLES = List.of("routes", "stop_times");
+
+    @Test
+    void swapsTheShadowGenerationInAndRollsBack() throws Exception {
+        DataSource dataSource = TestDatabase.dataSource();
+        TableGenerations generations = new TableGenerations(dataSource);
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            new DatePartitions("stop_times", List.of("service_date", "trip_key", "stop_sequence"),
+                    TestDatabase.indexBuilder(dataSource), new ImportMetrics(new SimpleMeterRegistry()))
+                    .retain(conn, List.of(LocalDate.of(2030, 1, 1)));
+            try (Statement st = conn.createStatement()) {
+                st.execute("TRUNCATE routes, stop_times");
+                st.execute("INSERT INTO routes (route_id) VALUES ('OLD')");
+                st.execute("INSERT INTO stop_times (service_date, trip_key, stop_sequence, stop_key) VALUES ('2030-01-01', 1, 1, 1)");
+            }
+            conn.commit();
+        }
+
+        generations.prepare(TABLES, true);
+        assertEquals(List.of("routes | r | u", "stop_times | p | p"), TestDatabase.rows(dataSource, """
+                SELECT c.relname, c.relkind, c.relpersistence
+                FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = 'gtfs_next' AND c.relkind IN ('r', 'p') ORDER BY 1
+                """));
+
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO gtfs_next.routes (route_id) VALUES ('NEW')");
+            st.execute("""
+                    CREATE TABLE gtfs_next.stop_times_20300102 PARTITION OF gtfs_next.stop_times
+                    FOR VALUES FROM ('2030-01-02') TO ('2030-01-03')
+                    """);
+            st.execute("INSERT INTO gtfs_next.stop_times (service_date, trip_key, stop_sequence, stop_key) VALUES ('2030-01-02', 1, 1, 1)");
+        }
+        generations.setLogged(TABLES);
+        generations.swap(TABLES);
+
+        assertEquals(List.of("NEW"), TestDatabase.rows(dataSource, "SELECT route_id FROM public.routes"));
+        assertEquals(List.of("OLD"), TestDatabase.rows(dataSource, "SELECT route_id FROM gtfs_prev.routes"));
+        assertEquals(List.of("public.stop_times_20300102"), partitions(dataSource, "public"));
+        assertEquals(List.of("gtfs_prev.stop_times_20300101"), partitions(dataSource, "gtfs_prev"));
+        assertEquals(List.of(), TestDatabase.rows(dataSource, "SELECT 1 FROM pg_namespace WHERE nspname = 'gtfs_next'"));
+
+        generations.rollback(TABLES);
+
+        assertEquals(List.of("OLD"), TestDatabase.rows(dataSource, "SELECT route_id FROM public.routes"));
+        assertEquals(List.of("NEW"), TestDatabase.rows(dataSource, "SELECT route_id FROM gtfs_prev.routes"));
+        assertEquals(List.of("public.stop_times_20300101"), partitions(dataSource, "public"));
+        assertEquals(List.of("gtfs_prev.stop_times_20300102"), partitions(dataSource, "gtfs_prev"));
+        assertEquals(List.of("2030-01-01"), TestDatabase.rows(dataSource, "SELECT service_date FROM public.stop_times"));
+    }
+
+    // partitions of schema.stop_times, schema-qualified to show they moved with their parent
+    private static List<String> partitions(DataSource dataSource, String schema) throws Exception {
+        return TestDatabase.rows(dataSource, """
+                SELECT n.nspname || '.' || c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE i.inhparent = '%s.stop_times'::regclass AND c.relkind = 'r'
+                ORDER BY 1
+                """.formatted(schema));
+    }
+}
@@ -0,0 +1,100 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.TestDatabase;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DatePartitionsTest {
+
+    private static final LocalDate DAY1 = LocalDate.of(2030, 1, 1);
+    private static final LocalDate DAY2 = DAY1.plusDays(1);
+    private static final LocalDate DAY3 = DAY1.plusDays(2);
+
+    private static final String PARTITIONS = """
+            SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'departures'::regclass ORDER BY 1
+            """;
+
+    @Test
+    void reloadReplacesEveryDayPartition() throws Exception {
+        DataSource dataSource = TestDatabase.dataSource();
+        DatePartitions partitions = partitions(dataSource);
+
+        reload(dataSource, partitions, List.of(DAY1, DAY2), "first");
+        assertEquals(List.of("departures_20300101", "departures_20300102"), TestDatabase.rows(dataSource, PARTITIONS));
+
+        reload(dataSource, partitions, List.of(DAY2, DAY3), "second");
+        assertEquals(List.of("departures_20300102", "departures_20300103"), TestDatabase.rows(dataSource, PARTITIONS));
+        assertEquals(List.of(
+                        "%s | second".formatted(DAY2),
+                        "%s | second".formatted(DAY3)),
+                TestDatabase.rows(dataSource, "SELECT service_date, trip_id FROM departures ORDER BY 1"));
+
+        // no staging tables left behind, and each partition's indexes attached under their final names
+        assertEquals(List.of(),
+                TestDatabase.rows(dataSource, "SELECT relname FROM pg_class WHERE relname LIKE 'departures%load%'"));
+        assertEquals(List.of(
+                        "departures_20300102_pkey | departures_pkey",
+                        "departures_20300103_pkey | departures_pkey",
+                        "idx_departures_stop_time_20300102 | idx_departures_stop_time",
+                        "idx_departures_stop_time_20300103 | idx_departures_stop_time"),
+                TestDatabase.rows(dataSource, """
+                        SELECT c.relname, p.relname
+                        FROM pg_inherits i
+                        JOIN pg_class c ON c.oid = i.inhrelid
+                        JOIN pg_class p ON p.oid = i.inhparent
+                        WHERE p.relkind = 'I' AND p.relname IN ('departures_pkey', 'idx_departures_stop_time')
+                        ORDER BY 1
+                        """));
+    }
+
+    @Test
+    void retainKeepsPartitionsOfTheWindowAndDropsTheRest() throws Exception {
+        DataSource dataSource = TestDatabase.dataSource();
+        DatePartitions partitions = partitions(dataSource);
+
+        reload(dataSource, partitions, List.of(DAY1, DAY2), "kept");
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            partitions.retain(conn, List.of(DAY2, DAY3));
+            conn.commit();
+        }
+
+        assertEquals(List.of("departures_20300102", "departures_20300103"), TestDatabase.rows(dataSource, PARTITIONS));
+        assertEquals(List.of("%s | kept".formatted(DAY2)),
+                TestDatabase.rows(dataSource, "SELECT service_date, trip_id FROM departures ORDER BY 1"));
+    }
+
+    private static DatePartitions partitions(DataSource dataSource) {
+        return new DatePartitions("departures", List.of("service_date", "trip_id", "stop_sequence"),
+                TestDatabase.indexBuilder(dataSource), new ImportMetrics(new SimpleMeterRegistry()));
+    }
+
+    // loads one departure per day, tagged with the load it came from
+    private static void reload(DataSource dataSource, DatePartitions partitions, List<LocalDate> dates,
+                               String tag) throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            partitions.reload(conn, dates, (c, target, date) -> {
+                try (PreparedStatement ps = c.prepareStatement("""
+                        INSERT INTO %s (service_date, stop_id, departure_time, trip_id, stop_sequence, route_id)
+                        VALUES (?, 'S1', 3600, ?, 1, 'R1')
+                        """.formatted(target))) {
+                    ps.setObject(1, date);
+                    ps.setString(2, tag);
+                    return ps.executeUpdate();
+                }
+            });
+            conn.commit();
+        }
+    }
+}
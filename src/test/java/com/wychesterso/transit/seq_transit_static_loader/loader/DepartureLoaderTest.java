@@ -0,0 +1,42 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.TestDatabase;
+import com.wychesterso.transit.seq_transit_static_loader.importer.TableGenerations;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static com.wychesterso.transit.seq_transit_static_loader.loader.LoadedTimetable.DAY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DepartureLoaderTest {
+
+    @Test
+    void writesBoardableDeparturesInStopAndTimeOrder() throws Exception {
+        DataSource dataSource = TestDatabase.dataSource();
+        LoadedTimetable.load(dataSource);
+
+        // built from the loaded tables; no feed files are read
+        new DepartureLoader(dataSource, new ImportMetrics(new SimpleMeterRegistry()), TestDatabase.indexBuilder(dataSource))
+                .load(new LoadContext(null, TableGenerations.LIVE, false, false));
+
+        // heap order, which idx_departures_stop_time scans follow; drop-off only and arrival only stops left out
+        assertEquals(List.of(
+                        "%s | S1 | 3500 | T3 | 2 | R1 | 1 | FF0000 | FFFFFF | Beach | 1".formatted(DAY),
+                        "%s | S1 | 3600 | T1 | 1 | R1 | 1 | FF0000 | FFFFFF | City | 0".formatted(DAY),
+                        "%s | S1 | 4000 | T4 | 1 | R2 | 2 | 00FF00 | 000000 | Loop | 0".formatted(DAY),
+                        "%s | S1 | 4200 | T4 | 3 | R2 | 2 | 00FF00 | 000000 | Loop | 0".formatted(DAY),
+                        "%s | S1 | 7200 | T2 | 1 | R1 | 1 | FF0000 | FFFFFF | City | 0".formatted(DAY),
+                        "%s | S2 | 4100 | T4 | 2 | R2 | 2 | 00FF00 | 000000 | Loop | 0".formatted(DAY),
+                        "%s | S3 | 3000 | T3 | 1 | R1 | 1 | FF0000 | FFFFFF | Beach | 1".formatted(DAY)),
+                TestDatabase.rows(dataSource, """
+                        SELECT service_date, stop_id, departure_time, trip_id, stop_sequence,
+                               route_id, route_short_name, route_color, route_text_color,
+                               trip_headsign, direction_id
+                        FROM departures_20300101 ORDER BY ctid
+                        """));
+    }
+}
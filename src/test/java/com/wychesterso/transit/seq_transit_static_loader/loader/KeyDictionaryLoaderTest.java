@@ -0,0 +1,121 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.TestDatabase;
+import com.wychesterso.transit.seq_transit_static_loader.importer.TableGenerations;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KeyDictionaryLoaderTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+
+    private DataSource dataSource;
+
+    @BeforeEach
+    void emptyTables() throws Exception {
+        dataSource = TestDatabase.dataSource();
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            new DatePartitions("stop_times", List.of("service_date", "trip_key", "stop_sequence"),
+                    TestDatabase.indexBuilder(dataSource), new ImportMetrics(new SimpleMeterRegistry()))
+                    .retain(conn, List.of(DAY));
+            try (Statement st = conn.createStatement()) {
+                st.execute("TRUNCATE trips, stops, trip_keys, stop_keys, stop_times");
+                st.execute("INSERT INTO stops (stop_id) VALUES ('S1')");
+            }
+            conn.commit();
+        }
+    }
+
+    @Test
+    void keepsKeysStableAndNeverReusesThem() throws Exception {
+        feed("T1", "T2", "T3");
+        load(TableGenerations.LIVE);
+        assertEquals(List.of("1 | T1", "2 | T2", "3 | T3"), keys("trip_keys"));
+        stopTimes(1, 2, 3);
+
+        // T2 and T3 left the feed, but the loaded stop_times still refer to them
+        feed("T1", "T4");
+        load(TableGenerations.LIVE);
+        assertEquals(List.of("1 | T1", "2 | T2", "3 | T3", "4 | T4"), keys("trip_keys"));
+        stopTimes(1, 4);
+
+        // the import after: unreferenced now, so pruned; T4 is only gone from the feed
+        feed("T1", "T5");
+        load(TableGenerations.LIVE);
+        assertEquals(List.of("1 | T1", "4 | T4", "5 | T5"), keys("trip_keys"));
+        stopTimes(1);
+
+        // T5 is unreferenced too, but the highest key, so it stays for the next key to follow
+        feed("T1");
+        load(TableGenerations.LIVE);
+        assertEquals(List.of("1 | T1", "5 | T5"), keys("trip_keys"));
+
+        // 6, not 5 again; with a higher key in place, T5 can go
+        feed("T1", "T6");
+        load(TableGenerations.LIVE);
+        assertEquals(List.of("1 | T1", "6 | T6"), keys("trip_keys"));
+        assertEquals(List.of("1 | S1"), keys("stop_keys"));
+    }
+
+    @Test
+    void carriesTheLiveKeysIntoAShadowGeneration() throws Exception {
+        feed("T1", "T2");
+        load(TableGenerations.LIVE);
+
+        List<String> tables = List.of("trips", "stops", "trip_keys", "stop_keys", "stop_times");
+        new TableGenerations(dataSource).prepare(tables, false);
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO gtfs_next.trips (route_id, service_id, trip_id) VALUES ('R', 'S', 'T0'), ('R', 'S', 'T2')");
+            st.execute("INSERT INTO gtfs_next.stops (stop_id) VALUES ('S1')");
+        }
+        load(TableGenerations.NEXT);
+
+        // T1 left and nothing in the shadow stop_times refers to it; T0 sorts first but is new
+        assertEquals(List.of("2 | T2", "3 | T0"), keys(TableGenerations.NEXT + ".trip_keys"));
+        assertEquals(List.of("1 | T1", "2 | T2"), keys("trip_keys"));
+    }
+
+    private void feed(String... tripIds) throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("TRUNCATE trips");
+            st.execute("INSERT INTO trips (route_id, service_id, trip_id) VALUES "
+                    + Arrays.stream(tripIds).map(id -> "('R', 'S', '%s')".formatted(id)).collect(Collectors.joining(", ")));
+        }
+    }
+
+    // what StopTimeLoader would have loaded: one row per trip key
+    private void stopTimes(int... tripKeys) throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("TRUNCATE stop_times");
+            for (int key : tripKeys) {
+                st.execute("INSERT INTO stop_times (service_date, trip_key, stop_sequence, stop_key) VALUES ('%s', %d, 1, 1)"
+                        .formatted(DAY, key));
+            }
+        }
+    }
+
+    private void load(String schema) throws Exception {
+        new KeyDictionaryLoader(dataSource, new ImportMetrics(new SimpleMeterRegistry()))
+                .load(new LoadContext(null, schema, false, false));
+    }
+
+    private List<String> keys(String table) throws Exception {
+        return TestDatabase.rows(dataSource, "SELECT * FROM " + table + " ORDER BY 1");
+    }
+}
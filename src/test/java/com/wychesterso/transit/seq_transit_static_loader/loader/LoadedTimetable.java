@@ -0,0 +1,73 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.TestDatabase;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A small timetable, written straight into the tables the feed loaders fill, for testing the
+ * stages derived from them. One service day, stops S1 to S3 and two routes:
+ * <ul>
+ *     <li>T1 and T2, route 1 inbound: S1, S2 (drop-off only), S3 (arrival only)</li>
+ *     <li>T3, route 1 outbound: S3, S1</li>
+ *     <li>T4, route 2, a loop: S1, S2, S1</li>
+ * </ul>
+ */
+final class LoadedTimetable {
+
+    static final LocalDate DAY = LocalDate.of(2030, 1, 1);
+
+    private LoadedTimetable() {}
+
+    static void load(DataSource dataSource) throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+
+            new DatePartitions("stop_times", List.of("service_date", "trip_key", "stop_sequence"),
+                    TestDatabase.indexBuilder(dataSource), new ImportMetrics(new SimpleMeterRegistry()))
+                    .retain(conn, List.of(DAY));
+
+            try (Statement st = conn.createStatement()) {
+                st.execute("TRUNCATE routes, trips, trip_keys, stop_keys, active_services, stop_times");
+                st.execute("""
+                        INSERT INTO routes (route_id, route_short_name, route_color, route_text_color) VALUES
+                            ('R1', '1', 'FF0000', 'FFFFFF'),
+                            ('R2', '2', '00FF00', '000000')
+                        """);
+                st.execute("""
+                        INSERT INTO trips (route_id, service_id, trip_id, trip_headsign, direction_id) VALUES
+                            ('R1', 'WEEKDAY', 'T1', 'City', 0),
+                            ('R1', 'WEEKDAY', 'T2', 'City', 0),
+                            ('R1', 'WEEKDAY', 'T3', 'Beach', 1),
+                            ('R2', 'WEEKDAY', 'T4', 'Loop', 0)
+                        """);
+                st.execute("INSERT INTO trip_keys VALUES (1, 'T1'), (2, 'T2'), (3, 'T3'), (4, 'T4')");
+                st.execute("INSERT INTO stop_keys VALUES (1, 'S1'), (2, 'S2'), (3, 'S3')");
+                st.execute("INSERT INTO active_services VALUES ('%s', 'WEEKDAY')".formatted(DAY));
+                st.execute("""
+                        INSERT INTO stop_times (service_date, trip_key, stop_sequence, stop_key,
+                                                arrival_time, departure_time, pickup_type) VALUES
+                            ('%1$s', 1, 1, 1, 3600, 3600, 0),
+                            ('%1$s', 1, 2, 2, 3700, 3700, 1),
+                            ('%1$s', 1, 3, 3, 3800, NULL, 0),
+                            ('%1$s', 2, 1, 1, 7200, 7200, 0),
+                            ('%1$s', 2, 2, 2, 7300, 7300, 1),
+                            ('%1$s', 2, 3, 3, 7400, NULL, 0),
+                            ('%1$s', 3, 1, 3, 3000, 3000, 0),
+                            ('%1$s', 3, 2, 1, 3500, 3500, 0),
+                            ('%1$s', 4, 1, 1, 4000, 4000, 0),
+                            ('%1$s', 4, 2, 2, 4100, 4100, 0),
+                            ('%1$s', 4, 3, 1, 4200, 4200, 0)
+                        """.formatted(DAY));
+            }
+
+            conn.commit();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.TestDatabase;
+import com.wychesterso.transit.seq_transit_static_loader.importer.TableGenerations;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import static com.wychesterso.transit.seq_transit_static_loader.loader.LoadedTimetable.DAY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RoutePatternLoaderTest {
+
+    private static final String PATTERNS = """
+            SELECT route_id, direction_id, stop_ids, stop_count, trip_count
+            FROM route_patterns ORDER BY route_id, direction_id
+            """;
+
+    @Test
+    void buildsPatternsAndTheRoutesServingEachStop() throws Exception {
+        DataSource dataSource = TestDatabase.dataSource();
+        LoadedTimetable.load(dataSource);
+
+        loader(dataSource).load(new LoadContext(null, TableGenerations.LIVE, false, false));
+
+        assertEquals(List.of(
+                        "R1 | 0 | {S1,S2,S3} | 3 | 2",
+                        "R1 | 1 | {S3,S1} | 2 | 1",
+                        "R2 | 0 | {S1,S2,S1} | 3 | 1"),
+                TestDatabase.rows(dataSource, PATTERNS));
+        // the loop calls at S1 twice but counts once there
+        assertEquals(List.of(
+                        "S1 | R1 | 1 | FF0000 | 2 | 3",
+                        "S1 | R2 | 2 | 00FF00 | 1 | 1",
+                        "S2 | R1 | 1 | FF0000 | 1 | 2",
+                        "S2 | R2 | 2 | 00FF00 | 1 | 1",
+                        "S3 | R1 | 1 | FF0000 | 2 | 3"),
+                TestDatabase.rows(dataSource, """
+                        SELECT stop_id, route_id, route_short_name, route_color, pattern_count, trip_count
+                        FROM stop_routes ORDER BY stop_id, route_id
+                        """));
+    }
+
+    @Test
+    void keepsPatternIdsAcrossImports() throws Exception {
+        DataSource dataSource = TestDatabase.dataSource();
+        LoadedTimetable.load(dataSource);
+
+        loader(dataSource).load(new LoadContext(null, TableGenerations.LIVE, false, false));
+        List<String> ids = TestDatabase.rows(dataSource, "SELECT pattern_id FROM route_patterns ORDER BY 1");
+
+        // another outbound trip on the existing pattern
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO trips (route_id, service_id, trip_id, direction_id) VALUES ('R1', 'WEEKDAY', 'T5', 1)");
+            st.execute("INSERT INTO trip_keys VALUES (5, 'T5')");
+            st.execute("""
+                    INSERT INTO stop_times (service_date, trip_key, stop_sequence, stop_key, departure_time)
+                    VALUES ('%1$s', 5, 1, 3, 9000), ('%1$s', 5, 2, 1, 9500)
+                    """.formatted(DAY));
+        }
+        loader(dataSource).load(new LoadContext(null, TableGenerations.LIVE, true, false));
+
+        assertEquals(ids, TestDatabase.rows(dataSource, "SELECT pattern_id FROM route_patterns ORDER BY 1"));
+        assertEquals(List.of(
+                        "R1 | 0 | {S1,S2,S3} | 3 | 2",
+                        "R1 | 1 | {S3,S1} | 2 | 2",
+                        "R2 | 0 | {S1,S2,S1} | 3 | 1"),
+                TestDatabase.rows(dataSource, PATTERNS));
+    }
+
+    // built from the loaded tables; no feed files are read
+    private static RoutePatternLoader loader(DataSource dataSource) {
+        return new RoutePatternLoader(dataSource, new ImportMetrics(new SimpleMeterRegistry()),
+                TestDatabase.indexBuilder(dataSource));
+    }
+}
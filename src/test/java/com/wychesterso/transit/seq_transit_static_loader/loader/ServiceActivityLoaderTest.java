@@ -0,0 +1,53 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.TestDatabase;
+import com.wychesterso.transit.seq_transit_static_loader.feed.DirectoryGtfsFeed;
+import com.wychesterso.transit.seq_transit_static_loader.importer.TableGenerations;
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics;
+import com.wychesterso.transit.seq_transit_static_loader.time.ServiceTimeHelper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ServiceActivityLoaderTest {
+
+    @Test
+    void storesServiceIdsThatTextCopyWouldHaveToEscape(@TempDir Path dir) throws Exception {
+        LocalDate today = ServiceTimeHelper.now().serviceDate();
+        String from = today.minusDays(3).format(DateTimeFormatter.BASIC_ISO_DATE);
+        String to = today.plusDays(3).format(DateTimeFormatter.BASIC_ISO_DATE);
+        Files.writeString(dir.resolve("calendar.txt"), """
+                service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date
+                "TAB\tBED",1,1,1,1,1,1,1,%1$s,%2$s
+                BACK\\SLASH,1,1,1,1,1,1,1,%1$s,%2$s
+                "NEW
+                LINE",1,1,1,1,1,1,1,%1$s,%2$s
+                DEAD,0,0,0,0,0,0,0,%1$s,%2$s
+                """.formatted(from, to));
+
+        DataSource dataSource = TestDatabase.dataSource();
+        ServiceActivityLoader loader = new ServiceActivityLoader(dataSource, new ImportMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(loader, "serviceWindowDays", 1);
+        loader.load(new LoadContext(new DirectoryGtfsFeed(dir), TableGenerations.LIVE, false, false));
+
+        LocalDate first = today.minusDays(3);
+        assertEquals(List.of(
+                        "BACK\\SLASH | %s | 1111111".formatted(first),
+                        "DEAD | null | ",
+                        "NEW\nLINE | %s | 1111111".formatted(first),
+                        "TAB\tBED | %s | 1111111".formatted(first)),
+                TestDatabase.rows(dataSource, "SELECT service_id, start_date, active_days FROM service_activity ORDER BY 1"));
+        assertEquals(List.of("BACK\\SLASH", "NEW\nLINE", "TAB\tBED"),
+                TestDatabase.rows(dataSource, "SELECT service_id FROM active_services ORDER BY 1"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.loader.StopTimeTransformer.TripRun;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StopTimeTransformerTest {
+
+    private static final LocalDate DAY1 = LocalDate.of(2030, 1, 1);
+    private static final LocalDate DAY2 = DAY1.plusDays(1);
+
+    // a quoted trip_id with a comma, a missing departure, a time past midnight, a trip split by
+    // another trip's rows, and rows of an unknown stop and an unknown trip
+    private static final String STOP_TIMES = """
+            trip_id,arrival_time,departure_time,stop_id,stop_sequence,pickup_type,drop_off_type
+            "T,1",08:00:00,08:00:00,S1,1,,
+            "T,1",08:05:00,,S2,2,0,1
+            "T,1",25:10:00,25:10:00,S3,3,,
+            T2,09:00:00,09:00:00,S1,1,1,0
+            T2,09:05:00,09:05:00,NOPE,2,,
+            GONE,10:00:00,10:00:00,S1,1,,
+            T2,09:10:00,09:10:00,S2,3,,
+            """;
+
+    private static final Map<String, TripRun> TRIPS = Map.of(
+            "T,1", new TripRun(1, new long[]{DAY1.toEpochDay(), DAY2.toEpochDay()}),
+            "T2", new TripRun(2, new long[]{DAY1.toEpochDay()}));
+
+    private static final Map<String, Integer> STOP_KEYS = Map.of("S1", 1, "S2", 2, "S3", 3);
+
+    @Test
+    void encodesEachRowOncePerDateOfItsTrip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = new StopTimeTransformer(TRIPS, STOP_KEYS, 3, 16)
+                .transform(new ByteArrayInputStream(STOP_TIMES.getBytes(StandardCharsets.UTF_8)), out);
+
+        assertEquals(8, rows);
+        // service_date | trip_key | arrival | departure | stop_key | stop_sequence | pickup | drop-off
+        assertEquals(List.of(
+                        "%s | 1 | 28800 | 28800 | 1 | 1 | null | null".formatted(DAY1),
+                        "%s | 1 | 29100 | null | 2 | 2 | 0 | 1".formatted(DAY1),
+                        "%s | 1 | 90600 | 90600 | 3 | 3 | null | null".formatted(DAY1),
+                        "%s | 2 | 32400 | 32400 | 1 | 1 | 1 | 0".formatted(DAY1),
+                        "%s | 2 | 33000 | 33000 | 2 | 3 | null | null".formatted(DAY1),
+                        "%s | 1 | 28800 | 28800 | 1 | 1 | null | null".formatted(DAY2),
+                        "%s | 1 | 29100 | null | 2 | 2 | 0 | 1".formatted(DAY2),
+                        "%s | 1 | 90600 | 90600 | 3 | 3 | null | null".formatted(DAY2)),
+                sorted(decode(out.toByteArray())));
+    }
+
+    @Test
+    void encodesTheSameRowsWhateverTheChunkingAndThreads() throws Exception {
+        StringBuilder feed = new StringBuilder(STOP_TIMES);
+        for (int i = 0; i < 500; i++) {
+            feed.append("T2,09:%02d:00,09:%02d:00,S%d,%d,,\n".formatted(i % 60, i % 60, i % 3 + 1, i + 10));
+        }
+        byte[] in = feed.toString().getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        new StopTimeTransformer(TRIPS, STOP_KEYS, 1).transform(new ByteArrayInputStream(in), single);
+        ByteArrayOutputStream chunked = new ByteArrayOutputStream();
+        new StopTimeTransformer(TRIPS, STOP_KEYS, 4, 64).transform(new ByteArrayInputStream(in), chunked);
+
+        List<String> expected = decode(single.toByteArray());
+        assertEquals(508, expected.size());
+        assertEquals(sorted(expected), sorted(decode(chunked.toByteArray())));
+    }
+
+    private static List<String> sorted(List<String> rows) {
+        return rows.stream().sorted().toList();
+    }
+
+    // reads the binary COPY stream back, one row per string
+    private static List<String> decode(byte[] copy) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(copy));
+        byte[] signature = new byte[11];
+        in.readFully(signature);
+        assertArrayEquals("PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1), signature);
+        assertEquals(0, in.readInt());
+        assertEquals(0, in.readInt());
+
+        List<String> rows = new ArrayList<>();
+        for (int columns; (columns = in.readShort()) != -1; ) {
+            assertEquals(StopTimeTransformer.COLUMNS.size(), columns);
+            assertEquals(4, in.readInt());
+            List<String> values = new ArrayList<>();
+            values.add(LocalDate.of(2000, 1, 1).plusDays(in.readInt()).toString());
+            for (int c = 1; c < columns; c++) {
+                int length = in.readInt();
+                if (length < 0) {
+                    values.add("null");
+                } else {
+                    assertEquals(4, length);
+                    values.add(String.valueOf(in.readInt()));
+                }
+            }
+            rows.add(String.join(" | ", values));
+        }
+        assertEquals(-1, in.read());
+        return rows;
+    }
+}
@@ -0,0 +1,64 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import com.wychesterso.transit.seq_transit_static_loader.TestDatabase;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TableDiffTest {
+
+    private static final String STOPS = """
+            SELECT stop_id, stop_code, stop_name, stop_lat, stop_lon, geohash FROM stops ORDER BY 1
+            """;
+
+    @Test
+    void appliesOnlyTheChangedRows() throws Exception {
+        DataSource dataSource = TestDatabase.dataSource();
+        try (Connection conn = dataSource.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("TRUNCATE stops");
+            st.execute("""
+                    INSERT INTO stops (stop_id, stop_code, stop_name, stop_lat, stop_lon) VALUES
+                        ('SAME', NULL, 'Unchanged', -27.47, 153.02),
+                        ('RENAMED', '1', 'Old name', -27.47, 153.02),
+                        ('CLEARED', 'X', 'Loses its code', -27.47, 153.02),
+                        ('REMOVED', '2', 'Gone', -27.47, 153.02)
+                    """);
+        }
+        List<String> unchanged = TestDatabase.rows(dataSource, "SELECT xmin FROM stops WHERE stop_id = 'SAME'");
+
+        long changes;
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            String stage = TableDiff.stage(conn, "stops");
+            try (Statement st = conn.createStatement()) {
+                // the staged feed: geohash is generated, so it is neither staged nor written by the diff
+                st.execute("""
+                        INSERT INTO %s (stop_id, stop_code, stop_name, stop_lat, stop_lon) VALUES
+                            ('SAME', NULL, 'Unchanged', -27.47, 153.02),
+                            ('RENAMED', '1', 'New name', -27.47, 153.02),
+                            ('CLEARED', NULL, 'Loses its code', -27.47, 153.02),
+                            ('ADDED', '3', 'New stop', -27.5, 153.1)
+                        """.formatted(stage));
+            }
+            changes = TableDiff.apply(conn, "stops", List.of("stop_id"));
+            conn.commit();
+        }
+
+        // ADDED inserted, RENAMED and CLEARED updated, REMOVED deleted; SAME, NULL on both sides, left alone
+        assertEquals(4, changes);
+        assertEquals(List.of(
+                        "ADDED | 3 | New stop | -27.5 | 153.1 | r7hgecu0b",
+                        "CLEARED | null | Loses its code | -27.47 | 153.02 | r7hgdp1z8",
+                        "RENAMED | 1 | New name | -27.47 | 153.02 | r7hgdp1z8",
+                        "SAME | null | Unchanged | -27.47 | 153.02 | r7hgdp1z8"),
+                TestDatabase.rows(dataSource, STOPS));
+        // not even rewritten
+        assertEquals(unchanged, TestDatabase.rows(dataSource, "SELECT xmin FROM stops WHERE stop_id = 'SAME'"));
+    }
+}
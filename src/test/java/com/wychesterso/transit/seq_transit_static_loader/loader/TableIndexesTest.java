@@ -0,0 +1,60 @@
+package com.wychesterso.transit.seq_transit_static_loader.loader;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableIndexesTest {
+
+    // as created by the changelog
+    private static final Map<String, List<String>> PRIMARY_KEYS = Map.of(
+            "routes", List.of("route_id"),
+            "stops", List.of("stop_id"),
+            "trips", List.of("trip_id"),
+            "shapes", List.of("shape_id", "shape_pt_sequence"),
+            "stop_times", List.of("service_date", "trip_id", "stop_sequence")
+    );
+
+    @Test
+    void declaredIndexesAreNotRedundant() {
+        assertEquals(List.of(), TableIndexes.redundant(TableIndexes.ALL, PRIMARY_KEYS));
+    }
+
+    @Test
+    void flagsIndexesServedByThePrimaryKeyOrAWiderIndex() {
+        List<TableIndex> indexes = List.of(
+                TableIndex.of("idx_trips_trip_id", "trips", "trip_id"),
+                TableIndex.of("idx_trips_trip_route", "trips", "trip_id", "route_id"),
+                TableIndex.of("idx_shapes_shape_id", "shapes", "shape_id"),
+                TableIndex.of("idx_stop_times_stop_id", "stop_times", "stop_id"),
+                TableIndex.of("idx_stop_times_stop_arrival", "stop_times", "stop_id", "arrival_time"),
+                TableIndex.of("idx_stop_times_stop_arrival_2", "stop_times", "stop_id", "arrival_time")
+                        .including("trip_id"),
+                // a different operator class serves different lookups
+                TableIndex.of("idx_trips_trip_pattern", "trips", "trip_id text_pattern_ops"),
+                TableIndex.of("idx_stop_times_trip_id", "stop_times", "trip_id")
+        );
+
+        List<String> problems = TableIndexes.redundant(indexes, PRIMARY_KEYS);
+
+        assertEquals(5, problems.size(), problems.toString());
+        assertTrue(problems.get(0).startsWith("idx_trips_trip_id [trip_id] is a prefix of the primary key"));
+        assertTrue(problems.get(1).startsWith("idx_trips_trip_route [trip_id, route_id] starts with the primary key"));
+        assertTrue(problems.get(2).startsWith("idx_shapes_shape_id [shape_id] is a prefix of the primary key"));
+        assertTrue(problems.get(3).startsWith("idx_stop_times_stop_id [stop_id] is a prefix of idx_stop_times_stop_arrival"));
+        assertTrue(problems.get(4).startsWith("idx_stop_times_stop_arrival_2 [stop_id, arrival_time] is a prefix of idx_stop_times_stop_arrival "));
+    }
+
+    @Test
+    void writesCreateStatementsWithOperatorClassesAndIncludedColumns() {
+        assertEquals("CREATE INDEX IF NOT EXISTS idx_routes_short_name ON routes (route_short_name text_pattern_ops)",
+                TableIndexes.of("routes").get(0).createStatement());
+        assertEquals("CREATE INDEX IF NOT EXISTS idx_stop_times_stop_arrival ON stop_times (stop_key, arrival_time)"
+                        + " INCLUDE (trip_key, departure_time)",
+                TableIndexes.of("stop_times").get(2).createStatement());
+    }
+}
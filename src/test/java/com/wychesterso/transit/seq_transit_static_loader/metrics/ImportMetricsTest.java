@@ -0,0 +1,57 @@
+package com.wychesterso.transit.seq_transit_static_loader.metrics;
+
+import com.wychesterso.transit.seq_transit_static_loader.metrics.ImportMetrics.Phase;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportMetricsTest {
+
+    @Test
+    void recordsTimeRowsAndBytesPerTableAndPhase() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ImportMetrics metrics = new ImportMetrics(registry);
+
+        for (int run = 0; run < 2; run++) {
+            ImportMetrics.Timing timing = metrics.start("stops", Phase.COPY);
+            Thread.sleep(5);
+            timing.stop(1000, 64_000);
+        }
+        metrics.start("stops", Phase.INDEX).stop();
+
+        Timer copy = registry.get("gtfs.import.phase").tags("table", "stops", "phase", "copy").timer();
+        assertEquals(2, copy.count());
+        assertEquals(2000, registry.get("gtfs.import.rows").tags("table", "stops", "phase", "copy").counter().count());
+        assertEquals(128_000, registry.get("gtfs.import.bytes").tags("table", "stops", "phase", "copy").counter().count());
+
+        double perSecond = registry.get("gtfs.import.rows.per.second").tags("table", "stops", "phase", "copy").gauge().value();
+        assertTrue(perSecond > 0 && perSecond <= 1000 / 0.005, "rows/sec " + perSecond);
+
+        // phases without rows or bytes only get a timer
+        assertEquals(1, registry.get("gtfs.import.phase").tags("table", "stops", "phase", "index").timer().count());
+        assertNull(registry.find("gtfs.import.rows").tags("phase", "index").counter());
+    }
+
+    @Test
+    void countsBytesReadThroughTheStream() throws Exception {
+        try (CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(new byte[10_000]))) {
+            in.read();
+            in.readNBytes(999);
+            in.skip(1000);
+            in.transferTo(OutputStream.nullOutputStream());
+            assertEquals(10_000, in.bytes());
+        }
+        try (InputStream in = new CountingInputStream(InputStream.nullInputStream())) {
+            assertEquals(-1, in.read());
+        }
+    }
+}
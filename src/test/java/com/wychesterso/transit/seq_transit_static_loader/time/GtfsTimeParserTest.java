@@ -0,0 +1,43 @@
+package com.wychesterso.transit.seq_transit_static_loader.time;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GtfsTimeParserTest {
+
+    @Test
+    void parsesTimesIntoSecondsOfTheServiceDay() {
+        assertEquals(0, GtfsTimeParser.parse("00:00:00"));
+        assertEquals(5 * 3600 + 2 * 60 + 7, GtfsTimeParser.parse("05:02:07"));
+        assertEquals(5 * 3600 + 2 * 60 + 7, GtfsTimeParser.parse("5:02:07"));
+        assertEquals(23 * 3600 + 59 * 60 + 59, GtfsTimeParser.parse(" 23:59:59 "));
+    }
+
+    @Test
+    void keepsHoursPastMidnight() {
+        assertEquals(25 * 3600 + 10 * 60, GtfsTimeParser.parse("25:10:00"));
+        assertEquals(100 * 3600, GtfsTimeParser.parse("100:00:00"));
+    }
+
+    @Test
+    void parsesAFieldInsideALargerBuffer() {
+        byte[] line = "T1,24:30:15,24:31:00,S1".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(24 * 3600 + 30 * 60 + 15, GtfsTimeParser.parse(line, 3, 8));
+        assertEquals(24 * 3600 + 31 * 60, GtfsTimeParser.parse(line, 12, 8));
+    }
+
+    @Test
+    void rejectsMalformedTimes() {
+        assertThrows(NumberFormatException.class, () -> GtfsTimeParser.parse(""));
+        assertThrows(NumberFormatException.class, () -> GtfsTimeParser.parse("12:00"));
+        assertThrows(NumberFormatException.class, () -> GtfsTimeParser.parse("12:5:00"));
+        assertThrows(NumberFormatException.class, () -> GtfsTimeParser.parse("12:60:00"));
+        assertThrows(NumberFormatException.class, () -> GtfsTimeParser.parse("1a:00:00"));
+        assertThrows(NumberFormatException.class, () -> GtfsTimeParser.parse("12-00-00"));
+    }
+}
@@ -0,0 +1,132 @@
+package com.wychesterso.transit.seq_transit_static_loader.time;
+
+import com.wychesterso.transit.seq_transit_static_loader.TestDatabase;
+import com.wychesterso.transit.seq_transit_static_loader.feed.GtfsFeed;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceCalendarTest {
+
+    // 2026-10-12 is a Monday
+    private static final GtfsFeed FEED = new MapFeed(Map.of(
+            "calendar.txt", """
+                    \uFEFFservice_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date
+                    WD,1,1,1,1,1,0,0,20261012,20261025
+                    WE,0,0,0,0,0,1,1,20261012,20261025
+                    """,
+            "calendar_dates.txt", """
+                    service_id,date,exception_type
+                    WD,20261016,2
+                    HOL,20261018,1
+                    WE,20261018,2
+                    """
+    ));
+
+    @Test
+    void appliesWeeklyRulesAndExceptions() throws Exception {
+        ServiceCalendar calendar = ServiceCalendar.read(FEED);
+
+        assertTrue(calendar.isActive("WD", LocalDate.of(2026, 10, 15)));
+        assertFalse(calendar.isActive("WD", LocalDate.of(2026, 10, 16)));
+        assertFalse(calendar.isActive("WD", LocalDate.of(2026, 10, 17)));
+        assertTrue(calendar.isActive("WE", LocalDate.of(2026, 10, 17)));
+        assertFalse(calendar.isActive("WE", LocalDate.of(2026, 10, 18)));
+        assertTrue(calendar.isActive("HOL", LocalDate.of(2026, 10, 18)));
+
+        assertFalse(calendar.isActive("WD", LocalDate.of(2026, 10, 26)));
+        assertFalse(calendar.isActive("WD", LocalDate.of(2026, 10, 11)));
+        assertFalse(calendar.isActive("UNKNOWN", LocalDate.of(2026, 10, 15)));
+    }
+
+    @Test
+    void listsServicesActiveOnADate() throws Exception {
+        ServiceCalendar calendar = ServiceCalendar.read(FEED);
+
+        assertEquals(Set.of("WD"), calendar.activeServices(LocalDate.of(2026, 10, 12)));
+        assertEquals(Set.of("HOL"), calendar.activeServices(LocalDate.of(2026, 10, 18)));
+        assertEquals(Set.of(), calendar.activeServices(LocalDate.of(2027, 1, 1)));
+    }
+
+    @Test
+    void encodesActiveDaysFromTheFirstActiveDay() throws Exception {
+        ServiceCalendar calendar = ServiceCalendar.read(FEED);
+
+        assertEquals(LocalDate.of(2026, 10, 17), calendar.firstActiveDate("WE"));
+        assertEquals("100000011", calendar.activeDayBits("WE"));
+        assertEquals("1", calendar.activeDayBits("HOL"));
+    }
+
+    @Test
+    void loadsTheCalendarStoredInServiceActivity() throws Exception {
+        // DEAD never runs, so it is stored without a start_date
+        ServiceCalendar calendar = ServiceCalendar.read(new MapFeed(Map.of(
+                "calendar.txt", """
+                        service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date
+                        WD,1,1,1,1,1,0,0,20261012,20261025
+                        WE,0,0,0,0,0,1,1,20261012,20261025
+                        DEAD,0,0,0,0,0,0,0,20261012,20261025
+                        """,
+                "calendar_dates.txt", """
+                        service_id,date,exception_type
+                        WD,20261016,2
+                        HOL,20261018,1
+                        """
+        )));
+
+        try (Connection conn = TestDatabase.dataSource().getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("TRUNCATE service_activity");
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO service_activity VALUES (?, ?, ?::bit varying)")) {
+                for (String serviceId : calendar.serviceIds()) {
+                    ps.setString(1, serviceId);
+                    ps.setObject(2, calendar.firstActiveDate(serviceId), Types.DATE);
+                    ps.setString(3, calendar.activeDayBits(serviceId));
+                    ps.executeUpdate();
+                }
+            }
+
+            ServiceCalendar loaded = ServiceCalendar.load(conn);
+
+            assertEquals(calendar.serviceIds(), loaded.serviceIds());
+            assertNull(loaded.firstActiveDate("DEAD"));
+            for (LocalDate d = LocalDate.of(2026, 10, 10); d.isBefore(LocalDate.of(2026, 10, 28)); d = d.plusDays(1)) {
+                assertEquals(calendar.activeServices(d), loaded.activeServices(d), d.toString());
+            }
+        }
+    }
+
+    private record MapFeed(Map<String, String> files) implements GtfsFeed {
+
+        @Override
+        public boolean contains(String fileName) {
+            return files.containsKey(fileName);
+        }
+
+        @Override
+        public InputStream open(String fileName) throws FileNotFoundException {
+            String content = files.get(fileName);
+            if (content == null) {
+                throw new FileNotFoundException(fileName);
+            }
+            return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.wychesterso.transit.seq_transit_static_loader.timetable;
+
+import com.wychesterso.transit.seq_transit_static_loader.timetable.TimetableSnapshot.Departure;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TimetableSnapshotTest {
+
+    private static final LocalDate DAY1 = LocalDate.of(2026, 3, 2);
+    private static final LocalDate DAY2 = DAY1.plusDays(1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void answersNextDeparturesAcrossServiceDates() throws Exception {
+        TimetableSnapshotWriter writer = new TimetableSnapshotWriter(DAY1);
+        // added out of order, and a trip past midnight that runs after day 2's first trip
+        writer.add("600014", "T3", DAY1, 25 * 3600, 25 * 3600 + 60);
+        writer.add("600014", "T1", DAY1, 8 * 3600, 8 * 3600);
+        writer.add("1", "T1", DAY1, 7 * 3600, 7 * 3600);
+        writer.add("600014", "T2", DAY2, null, 30 * 60);
+        writer.add("600014", "T4", DAY2, 9 * 3600, null);
+        writer.add("Ü-station", "T4", DAY2, 10 * 3600, 10 * 3600);
+        // no times at all: not an event
+        writer.add("1", "T5", DAY1, null, null);
+
+        Path file = dir.resolve("timetable.bin");
+        writer.write(file);
+        TimetableSnapshot snapshot = TimetableSnapshot.open(file);
+
+        assertEquals(DAY1, snapshot.firstServiceDate());
+        assertEquals(3, snapshot.stops());
+        assertEquals(6, snapshot.events());
+
+        assertEquals(List.of(
+                new Departure("T1", DAY1, 8 * 3600, 8 * 3600),
+                new Departure("T2", DAY2, 30 * 60, null),
+                new Departure("T3", DAY1, 25 * 3600 + 60, 25 * 3600),
+                // arrives only, so listed at its arrival without a departure
+                new Departure("T4", DAY2, null, 9 * 3600)),
+                snapshot.departures("600014", DAY1, 0, 10));
+
+        // 00:00 on day 2 is 24:00 on day 1, so day 1's 25:01 trip is still ahead
+        assertEquals(List.of(
+                new Departure("T2", DAY2, 30 * 60, null),
+                new Departure("T3", DAY1, 25 * 3600 + 60, 25 * 3600)),
+                snapshot.departures("600014", DAY2, 0, 2));
+
+        assertEquals(List.of(), snapshot.departures("600014", DAY2, 9 * 3600 + 1, 10));
+        assertEquals(List.of(new Departure("T4", DAY2, 10 * 3600, 10 * 3600)),
+                snapshot.departures("Ü-station", DAY1, 0, 10));
+        assertEquals(List.of(), snapshot.departures("unknown", DAY1, 0, 10));
+        assertEquals("1", snapshot.stopId(snapshot.stop("1")));
+    }
+}